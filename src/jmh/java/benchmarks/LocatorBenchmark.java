@@ -0,0 +1,102 @@
+package benchmarks;
+
+import driver.DriverFactory;
+import driver.ExecutionProfile;
+import driver.ResourceBlocker;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LocatorBenchmark measures how long headless Chrome takes to resolve the locators declared in
+ * the page objects, compared with id, CSS or data-test alternatives for the same elements.
+ * The pages are saved fixtures loaded from local files, so the numbers depend neither on the
+ * network nor on the shop's backend.
+ * <p>
+ * Every {@link LocatorCase} runs in its own fork with its own browser, which keeps one slow
+ * locator from warming up or cluttering the browser for the next one. The iteration counts are
+ * kept small enough for CI; pass {@code -wi}, {@code -i} or {@code -f} to JMH for longer runs.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocatorBenchmark {
+
+    @Param
+    public LocatorCase locatorCase;
+
+    private WebDriver driver;
+    private By declared;
+    private By alternative;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        driver = DriverFactory.createDriver(ExecutionProfile.LEAN);
+        URL fixture = LocatorBenchmark.class.getResource("/fixtures/" + locatorCase.getFixture());
+        if (fixture == null) {
+            throw new IllegalStateException("Missing fixture " + locatorCase.getFixture());
+        }
+        driver.get(fixture.toString());
+        new WebDriverWait(driver, Duration.ofSeconds(10)).until(ExpectedConditions.presenceOfElementLocated(By.tagName("app-root")));
+
+        declared = locatorCase.declaredLocator(driver);
+        alternative = locatorCase.getAlternative();
+        if (!driver.findElement(declared).equals(driver.findElement(alternative))) {
+            throw new IllegalStateException(declared + " and " + alternative + " find different elements in "
+                    + locatorCase.getFixture());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (driver != null) {
+            ResourceBlocker.detach(driver);
+            driver.quit();
+        }
+    }
+
+    @Benchmark
+    public WebElement findDeclared() {
+        return driver.findElement(declared);
+    }
+
+    @Benchmark
+    public WebElement findAlternative() {
+        return driver.findElement(alternative);
+    }
+
+    @Benchmark
+    public List<WebElement> findAllDeclared() {
+        return driver.findElements(declared);
+    }
+
+    @Benchmark
+    public List<WebElement> findAllAlternative() {
+        return driver.findElements(alternative);
+    }
+
+}
@@ -0,0 +1,104 @@
+package benchmarks;
+
+import basePage.BasePage;
+import basePage.PageContext;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import pages.HomePage;
+import pages.LoginPage;
+import pages.ProductPage;
+
+import java.lang.reflect.Field;
+
+/**
+ * LocatorCase pairs a locator declared in a page object with an alternative keyed on an id or
+ * a data-test attribute that finds the same element, together with the fixture page the pair
+ * is measured on.
+ * The declared locator is read from the page object itself, so the benchmark always measures
+ * what the tests use.
+ */
+public enum LocatorCase {
+
+    HOME_SIGN_IN("home.html", HomePage.class, "signInButtonBy", By.cssSelector("[data-test='nav-sign-in']")),
+    HOME_CATEGORIES("home.html", HomePage.class, "categoriesBy", By.cssSelector("[data-test='nav-categories']")),
+    HOME_POWER_TOOLS("home.html", HomePage.class, "powerToolsBy", By.cssSelector("[data-test='nav-power-tools']")),
+    HOME_JANE_DOE("home.html", HomePage.class, "janeDoeBy", By.cssSelector("[data-test='nav-menu']")),
+    HOME_PROFILE_FAVORITES("home.html", HomePage.class, "profileFavoritesBy", By.cssSelector("[data-test='nav-my-favorites']")),
+    HOME_PRODUCT_CARD("home.html", HomePage.class, "productCardBy", By.cssSelector("a.card")),
+    HOME_COMBINATION_PLIERS("home.html", HomePage.class, "combinationPliersBy",
+            By.cssSelector("[data-test='product-combination-pliers'] [data-test='product-name']")),
+    HOME_GRINDER("home.html", HomePage.class, "grinderCheckbox", By.xpath("//input[@data-test='category-grinder']/parent::label")),
+    HOME_SANDER("home.html", HomePage.class, "sanderCheckbox", By.xpath("//input[@data-test='category-sander']/parent::label")),
+    HOME_SAW("home.html", HomePage.class, "sawCheckbox", By.xpath("//input[@data-test='category-saw']/parent::label")),
+    PRODUCT_HOME("home.html", ProductPage.class, "headerHomeBy", By.cssSelector("[data-test='nav-home']")),
+    PRODUCT_PLIERS("home.html", ProductPage.class, "pliersBy",
+            By.cssSelector("[data-test='product-pliers'] [data-test='product-name']")),
+    PRODUCT_PLUS("product.html", ProductPage.class, "plusProductButtonBy", By.cssSelector("#btn-increase-quantity")),
+    PRODUCT_ADD_TO_CART("product.html", ProductPage.class, "addToCartButtonBy", By.cssSelector("[data-test='add-to-cart']")),
+    PRODUCT_ADD_TO_FAVORITES("product.html", HomePage.class, "favoritesButtonBy", By.cssSelector("[data-test='add-to-favorites']")),
+    PRODUCT_CART_COUNT("product.html", ProductPage.class, "itemsNumberBubbleBy", By.cssSelector("[data-test='cart-quantity']")),
+    PRODUCT_NOTIFICATION("product.html", ProductPage.class, "notificationPopupBy", By.cssSelector("#toast-container .toast-message")),
+    PRODUCT_CART_ICON("product.html", ProductPage.class, "cartIconBy", By.cssSelector("[data-test='nav-cart']")),
+    LOGIN_EMAIL("login.html", LoginPage.class, "emailBarBy", By.id("email")),
+    LOGIN_PASSWORD("login.html", LoginPage.class, "passwordBarBy", By.id("password")),
+    LOGIN_SUBMIT("login.html", LoginPage.class, "loginButtonBy", By.cssSelector("[data-test='login-submit']")),
+    CHECKOUT_PROCEED("checkout.html", ProductPage.class, "proceedToCheckoutButtonBy", By.cssSelector("[data-test='proceed-1']")),
+    CHECKOUT_PROCEED_2("checkout.html", ProductPage.class, "proceedToCheckoutButton2By", By.cssSelector("[data-test='proceed-2']")),
+    CHECKOUT_PROCEED_3("checkout.html", ProductPage.class, "proceedToCheckoutButton3By", By.cssSelector("[data-test='proceed-3']")),
+    CHECKOUT_STATE("checkout.html", ProductPage.class, "stateBarBy", By.cssSelector("[data-test='state']")),
+    CHECKOUT_POSTCODE("checkout.html", ProductPage.class, "postcodeBarBy", By.cssSelector("[data-test='postal_code']")),
+    CHECKOUT_PAYMENT_METHOD("checkout.html", ProductPage.class, "paymentMethodDropdownBy", By.cssSelector("[data-test='payment-method']")),
+    CHECKOUT_CASH_ON_DELIVERY("checkout.html", ProductPage.class, "cashOnDeliveryOptionBy", By.cssSelector("option[value='cash-on-delivery']")),
+    CHECKOUT_PAYMENT_SUCCESS("checkout.html", ProductPage.class, "paymentSuccessfulNotificationBy",
+            By.cssSelector("[data-test='payment-success-message']")),
+    CHECKOUT_CONFIRM("checkout.html", ProductPage.class, "confirmButtonBy", By.cssSelector("[data-test='finish']")),
+    CHECKOUT_ORDER_CONFIRMED("checkout.html", ProductPage.class, "orderConfirmedBy", By.cssSelector("#order-confirmation"));
+
+    private final String fixture;
+    private final Class<? extends BasePage> page;
+    private final String field;
+    private final By alternative;
+
+    LocatorCase(String fixture, Class<? extends BasePage> page, String field, By alternative) {
+        this.fixture = fixture;
+        this.page = page;
+        this.field = field;
+        this.alternative = alternative;
+    }
+
+    /**
+     * Retrieves the name of the fixture page, relative to the {@code fixtures} resource directory.
+     *
+     * @return the file name of the fixture.
+     */
+    public String getFixture() {
+        return fixture;
+    }
+
+    /**
+     * Retrieves the id or data-test alternative to the declared locator.
+     *
+     * @return the alternative locator.
+     */
+    public By getAlternative() {
+        return alternative;
+    }
+
+    /**
+     * Reads the locator the page object declares, from the page object of the given driver's session.
+     *
+     * @param driver the driver the page object is created with.
+     * @return the declared locator.
+     */
+    public By declaredLocator(WebDriver driver) {
+        try {
+            Object pageObject = PageContext.of(driver).page(page);
+            Field declared = page.getDeclaredField(field);
+            declared.setAccessible(true);
+            return (By) declared.get(pageObject);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not read " + page.getSimpleName() + "." + field, e);
+        }
+    }
+
+}
@@ -0,0 +1,30 @@
+package api;
+
+import java.util.Locale;
+
+/**
+ * AuthMode describes how tests that need a logged-in user get one. The mode is selected
+ * with the {@code auth.mode} system property and defaults to {@link #API}.
+ */
+public enum AuthMode {
+
+    /**
+     * A token is requested from the shop's login endpoint and stored in the browser.
+     */
+    API,
+
+    /**
+     * The user logs in through the login form.
+     */
+    UI;
+
+    /**
+     * Retrieves the mode selected for the current run.
+     *
+     * @return the selected authentication mode.
+     */
+    public static AuthMode current() {
+        return valueOf(System.getProperty("auth.mode", "api").trim().toUpperCase(Locale.ROOT));
+    }
+
+}
@@ -0,0 +1,118 @@
+package api;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+import org.openqa.selenium.json.Json;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Authentication logs users in over the REST API and hands the token to the browser,
+ * where the application keeps it in local storage. Tokens are cached per user until
+ * shortly before they expire, so consecutive tests do not log in again.
+ */
+public final class Authentication {
+
+    /**
+     * The local storage key under which the application keeps the access token.
+     */
+    public static final String TOKEN_STORAGE_KEY = "auth-token";
+
+    /**
+     * How long before its expiry a cached token is no longer handed out.
+     */
+    private static final long EXPIRY_MARGIN_MILLIS = 30_000;
+
+    private static final Map<String, CachedToken> TOKENS = new ConcurrentHashMap<>();
+
+    private static final Json JSON = new Json();
+
+    private Authentication() {
+    }
+
+    /**
+     * Retrieves an access token for the given user, logging in over the API if there is
+     * no cached token that is still valid.
+     *
+     * @param email    the email of the user.
+     * @param password the password of the user.
+     * @return the access token.
+     */
+    public static String token(String email, String password) {
+        CachedToken cached = TOKENS.get(email);
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+            return cached.token;
+        }
+        Map<String, Object> response = ShopApi.login(email, password);
+        String token = (String) response.get("access_token");
+        long expiresIn = ((Number) response.getOrDefault("expires_in", 300)).longValue();
+        TOKENS.put(email, new CachedToken(token, System.currentTimeMillis() + expiresIn * 1000 - EXPIRY_MARGIN_MILLIS));
+        return token;
+    }
+
+    /**
+     * Opens the given URL with the token already in local storage, so the application
+     * starts authenticated. With Chrome the token is injected before the first document
+     * script runs; other browsers load the page, store the token and reload.
+     *
+     * @param driver the driver of the browser session.
+     * @param url    the URL to open.
+     * @param token  the access token to store.
+     */
+    public static void openAuthenticated(WebDriver driver, String url, String token) {
+        if (!(driver instanceof HasCdp)) {
+            driver.get(url);
+            storeToken(driver, token);
+            driver.navigate().refresh();
+            return;
+        }
+        HasCdp cdp = (HasCdp) driver;
+        String source = "window.localStorage.setItem('" + TOKEN_STORAGE_KEY + "', " + JSON.toJson(token) + ");";
+        Map<String, Object> script = cdp.executeCdpCommand("Page.addScriptToEvaluateOnNewDocument", Map.of("source", source));
+        try {
+            driver.get(url);
+        } finally {
+            cdp.executeCdpCommand("Page.removeScriptToEvaluateOnNewDocument", Map.of("identifier", script.get("identifier")));
+        }
+    }
+
+    /**
+     * Stores the token in the local storage of the page currently open.
+     *
+     * @param driver the driver of the browser session.
+     * @param token  the access token to store.
+     */
+    public static void storeToken(WebDriver driver, String token) {
+        ((JavascriptExecutor) driver).executeScript(
+                "window.localStorage.setItem(arguments[0], arguments[1]);", TOKEN_STORAGE_KEY, token);
+    }
+
+    /**
+     * Checks whether the page currently open holds an access token.
+     *
+     * @param driver the driver of the browser session.
+     * @return true if a token is stored, false otherwise.
+     */
+    public static boolean isAuthenticated(WebDriver driver) {
+        return Boolean.TRUE.equals(((JavascriptExecutor) driver).executeScript(
+                "return window.localStorage.getItem(arguments[0]) !== null;", TOKEN_STORAGE_KEY));
+    }
+
+    /**
+     * An access token and the time it stops being handed out.
+     */
+    private static final class CachedToken {
+
+        private final String token;
+        private final long expiresAt;
+
+        private CachedToken(String token, long expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+}
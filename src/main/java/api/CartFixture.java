@@ -0,0 +1,94 @@
+package api;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * CartFixture builds a shopping cart over the REST API and hands it to the browser,
+ * so checkout tests can start at the cart page instead of adding products through the UI.
+ * <p>
+ * Example:
+ * <pre>
+ *     CartFixture.cart()
+ *             .with("Combination Pliers", 2)
+ *             .with("Pliers", 1)
+ *             .openIn(driver);
+ * </pre>
+ * </p>
+ */
+public final class CartFixture {
+
+    /**
+     * The session storage key under which the application keeps the id of the cart.
+     */
+    public static final String CART_ID_STORAGE_KEY = "cart_id";
+
+    /**
+     * The session storage key under which the application keeps the number of items in the cart.
+     */
+    public static final String CART_QUANTITY_STORAGE_KEY = "cart_quantity";
+
+    /**
+     * Quantities by product name, in the order the lines were added.
+     */
+    private final Map<String, Integer> lines = new LinkedHashMap<>();
+
+    private CartFixture() {
+    }
+
+    /**
+     * Starts describing a new cart.
+     *
+     * @return an empty cart fixture.
+     */
+    public static CartFixture cart() {
+        return new CartFixture();
+    }
+
+    /**
+     * Adds a product line to the cart.
+     *
+     * @param productName the name of the product, as displayed in the shop.
+     * @param quantity    how many items of the product the cart contains.
+     * @return this fixture.
+     */
+    public CartFixture with(String productName, int quantity) {
+        lines.merge(productName, quantity, Integer::sum);
+        return this;
+    }
+
+    /**
+     * Creates the cart over the API.
+     *
+     * @return the id of the created cart.
+     */
+    public String create() {
+        String cartId = ShopApi.createCart();
+        for (Map.Entry<String, Integer> line : lines.entrySet()) {
+            ShopApi.addToCart(cartId, ShopApi.productId(line.getKey()), line.getValue());
+        }
+        return cartId;
+    }
+
+    /**
+     * Creates the cart over the API, attaches it to the browser session and opens the cart page.
+     * The browser must already be on a page of the application.
+     *
+     * @param driver the driver of the browser session.
+     * @return the id of the created cart.
+     */
+    public String openIn(WebDriver driver) {
+        String cartId = create();
+        int quantity = lines.values().stream().mapToInt(Integer::intValue).sum();
+        ((JavascriptExecutor) driver).executeScript(
+                "window.sessionStorage.setItem(arguments[0], arguments[1]);"
+                        + "window.sessionStorage.setItem(arguments[2], arguments[3]);"
+                        + "window.location.assign('/checkout');",
+                CART_ID_STORAGE_KEY, cartId, CART_QUANTITY_STORAGE_KEY, String.valueOf(quantity));
+        return cartId;
+    }
+
+}
@@ -0,0 +1,160 @@
+package api;
+
+import mirror.Mirror;
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ShopApi is a small client for the REST API of the application under test.
+ * It is used to prepare test state over plain HTTP instead of clicking through the UI.
+ * The API URL can be changed with the {@code api.url} system property; when the shop is
+ * replayed by the {@link Mirror}, it points to the replay server.
+ */
+public final class ShopApi {
+
+    /**
+     * The base URL of the shop's REST API.
+     */
+    public static final String API_URL = Mirror.resolve(System.getProperty("api.url", "https://api.practicesoftwaretesting.com"));
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private static final Json JSON = new Json();
+
+    /**
+     * Product ids by product name, so every product is only searched for once.
+     */
+    private static final Map<String, String> PRODUCT_IDS = new ConcurrentHashMap<>();
+
+    private ShopApi() {
+    }
+
+    /**
+     * Logs in with the given credentials.
+     *
+     * @param email    the email of the user.
+     * @param password the password of the user.
+     * @return the response body, containing the {@code access_token} and its {@code expires_in} seconds.
+     */
+    public static Map<String, Object> login(String email, String password) {
+        return post("/users/login", Map.of("email", email, "password", password));
+    }
+
+    /**
+     * Finds the id of the product with exactly the given name.
+     *
+     * @param name the name of the product, as displayed in the shop.
+     * @return the id of the product.
+     * @throws IllegalArgumentException if there is no product with that name.
+     */
+    public static String productId(String name) {
+        return PRODUCT_IDS.computeIfAbsent(name, key -> {
+            Map<String, Object> page = get("/products/search?q=" + URLEncoder.encode(key, StandardCharsets.UTF_8));
+            for (Object product : (List<?>) page.getOrDefault("data", List.of())) {
+                Map<?, ?> fields = (Map<?, ?>) product;
+                if (key.equals(fields.get("name"))) {
+                    return (String) fields.get("id");
+                }
+            }
+            throw new IllegalArgumentException("No product named '" + key + "'");
+        });
+    }
+
+    /**
+     * Creates a new, empty cart.
+     *
+     * @return the id of the cart.
+     */
+    public static String createCart() {
+        return (String) post("/carts", Map.of()).get("id");
+    }
+
+    /**
+     * Adds a product to a cart.
+     *
+     * @param cartId    the id of the cart.
+     * @param productId the id of the product.
+     * @param quantity  how many items of the product to add.
+     */
+    public static void addToCart(String cartId, String productId, int quantity) {
+        post("/carts/" + cartId, Map.of("product_id", productId, "quantity", quantity));
+    }
+
+    /**
+     * Sends a GET request.
+     *
+     * @param path the path of the endpoint, relative to {@link #API_URL}.
+     * @return the response body parsed as a JSON object.
+     */
+    static Map<String, Object> get(String path) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(API_URL + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        return send(request, null);
+    }
+
+    /**
+     * Sends a POST request with a JSON body.
+     *
+     * @param path the path of the endpoint, relative to {@link #API_URL}.
+     * @param body the request body, serialized as JSON.
+     * @return the response body parsed as a JSON object.
+     */
+    static Map<String, Object> post(String path, Map<String, Object> body) {
+        String json = JSON.toJson(body);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(API_URL + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        return send(request, json);
+    }
+
+    /**
+     * Sends the request and parses its JSON response. The exchange is recorded when the {@link Mirror} records.
+     *
+     * @param request     the request to send.
+     * @param requestBody the body of the request, or null if it has none.
+     * @return the response body parsed as a JSON object, or an empty map if there is no body.
+     * @throws IllegalStateException if the API does not answer with a 2xx status.
+     */
+    static Map<String, Object> send(HttpRequest request, String requestBody) {
+        HttpResponse<String> response;
+        try {
+            response = CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Request to " + request.uri() + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Request to " + request.uri() + " was interrupted", e);
+        }
+        Mirror.record(request.method(), request.uri().toString(), requestBody, response.statusCode(),
+                response.headers().firstValue("Content-Type").orElse(null), response.headers().map(), response.body());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException(request.method() + " " + request.uri()
+                    + " returned " + response.statusCode() + ": " + response.body());
+        }
+        if (response.body().isBlank()) {
+            return Map.of();
+        }
+        return JSON.toType(response.body(), Json.MAP_TYPE);
+    }
+
+}
@@ -0,0 +1,216 @@
+package artifacts;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ArtifactWriter decodes, compresses and writes failure artifacts on a small pool of background
+ * threads, so the test thread only pays for taking them from the browser. The queue of pending
+ * artifacts is bounded; when it is full, the {@link BackpressurePolicy} decides what is dropped.
+ * <p>
+ * Artifacts go to {@code target/failure-artifacts} (or {@code -Dartifacts.dir}), one directory per
+ * failed test, with {@code screenshot.png}, {@code page-source.html.gz} and the step screenshots.
+ * The pool is tuned with {@code -Dartifacts.threads} (2) and {@code -Dartifacts.queueSize} (16).
+ * </p>
+ */
+public final class ArtifactWriter {
+
+    private static final ArtifactWriter INSTANCE = new ArtifactWriter(
+            Path.of(System.getProperty("artifacts.dir", "target/failure-artifacts")),
+            Integer.getInteger("artifacts.threads", 2),
+            Integer.getInteger("artifacts.queueSize", 16),
+            BackpressurePolicy.current());
+
+    private final Path directory;
+    private final BackpressurePolicy policy;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder captures = new LongAdder();
+    private final LongAdder captureNanos = new LongAdder();
+
+    /**
+     * Numbers the artifact directories, so failures in the same millisecond, such as parallel
+     * DataProvider rows of one test, never share a directory.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * The number of artifacts accepted but not written or dropped yet. Guarded by this object's monitor.
+     */
+    private int pending;
+
+    private ArtifactWriter(Path directory, int threads, int queueSize, BackpressurePolicy policy) {
+        this.directory = directory;
+        this.policy = policy;
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "failure-artifacts");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                },
+                rejectionHandler());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Retrieves the writer of the current run.
+     *
+     * @return the artifact writer.
+     */
+    public static ArtifactWriter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queues the artifacts of a failed test for writing.
+     *
+     * @param testName         the name of the test, used as the name of its artifact directory.
+     * @param screenshotBase64 the screenshot as Base64-encoded PNG, or null if it could not be taken.
+     * @param pageSource       the page source, or null if it could not be read.
+     * @param steps            the screenshots of the last steps, oldest first.
+     * @param captureNanos     how long taking the artifacts from the browser kept the test thread busy.
+     */
+    public void writeFailure(String testName, String screenshotBase64, String pageSource,
+                             List<StepScreenshots.StepScreenshot> steps, long captureNanos) {
+        captures.increment();
+        this.captureNanos.add(captureNanos);
+        Path testDirectory = directory.resolve(testName.replaceAll("[^A-Za-z0-9._-]", "_") + "-" + System.currentTimeMillis()
+                + "-" + sequence.incrementAndGet());
+        synchronized (this) {
+            pending++;
+        }
+        executor.execute(new Job(() -> {
+            Files.createDirectories(testDirectory);
+            if (screenshotBase64 != null) {
+                Files.write(testDirectory.resolve("screenshot.png"), Base64.getMimeDecoder().decode(screenshotBase64));
+            }
+            if (pageSource != null) {
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(testDirectory.resolve("page-source.html.gz")))) {
+                    out.write(pageSource.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            for (int i = 0; i < steps.size(); i++) {
+                StepScreenshots.StepScreenshot step = steps.get(i);
+                String name = String.format("step-%02d-%s.png", i + 1, step.step().replaceAll("[^A-Za-z0-9._-]", "_"));
+                Files.write(testDirectory.resolve(name.length() > 120 ? name.substring(0, 116) + ".png" : name),
+                        Base64.getMimeDecoder().decode(step.base64Png()));
+            }
+        }));
+    }
+
+    /**
+     * Waits until every queued artifact has been written or dropped, then prints what was written.
+     *
+     * @param timeout how long to wait at most.
+     */
+    public void flush(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (this) {
+            while (pending > 0) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    break;
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        long count = captures.sum();
+        if (count > 0) {
+            System.out.println("Failure artifacts: " + written.sum() + " written to " + directory.toAbsolutePath()
+                    + ", " + dropped.sum() + " dropped, " + failed.sum() + " failed, "
+                    + pendingCount() + " still pending; capture took "
+                    + TimeUnit.NANOSECONDS.toMillis(captureNanos.sum() / count) + " ms per failure on the test thread");
+        }
+    }
+
+    private synchronized int pendingCount() {
+        return pending;
+    }
+
+    private synchronized void done() {
+        pending--;
+        notifyAll();
+    }
+
+    private RejectedExecutionHandler rejectionHandler() {
+        return (runnable, pool) -> {
+            if (pool.isShutdown()) {
+                drop();
+                return;
+            }
+            switch (policy) {
+                case DROP_OLDEST -> {
+                    if (pool.getQueue().poll() != null) {
+                        drop();
+                    }
+                    pool.execute(runnable);
+                }
+                case DROP_NEWEST -> drop();
+                case CALLER_RUNS -> runnable.run();
+            }
+        };
+    }
+
+    private void drop() {
+        dropped.increment();
+        done();
+    }
+
+    /**
+     * Work that may fail with an I/O error.
+     */
+    private interface IoWork {
+        void run() throws IOException;
+    }
+
+    /**
+     * A queued artifact, counted as done whether it was written or failed.
+     */
+    private final class Job implements Runnable {
+
+        private final IoWork work;
+
+        private Job(IoWork work) {
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            try {
+                work.run();
+                written.increment();
+            } catch (IOException | UncheckedIOException e) {
+                failed.increment();
+                System.err.println("Could not write failure artifacts: " + e.getMessage());
+            } finally {
+                done();
+            }
+        }
+
+    }
+
+}
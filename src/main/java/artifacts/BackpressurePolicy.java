@@ -0,0 +1,36 @@
+package artifacts;
+
+import java.util.Locale;
+
+/**
+ * BackpressurePolicy decides what happens to new artifacts when the {@link ArtifactWriter}'s queue is full.
+ * The policy is selected with the {@code artifacts.backpressure} system property and defaults to {@link #DROP_OLDEST}.
+ */
+public enum BackpressurePolicy {
+
+    /**
+     * The oldest queued artifact is dropped to make room, so the most recent failures are kept.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The new artifact is dropped, so the first failures of a run are kept.
+     */
+    DROP_NEWEST,
+
+    /**
+     * The new artifact is written on the test thread, so nothing is lost but the test waits for the disk.
+     */
+    CALLER_RUNS;
+
+    /**
+     * Retrieves the policy selected for the current run.
+     *
+     * @return the selected backpressure policy.
+     */
+    public static BackpressurePolicy current() {
+        return valueOf(System.getProperty("artifacts.backpressure", "drop_oldest")
+                .trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+
+}
@@ -0,0 +1,86 @@
+package artifacts;
+
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * StepScreenshots keeps a ring of the screenshots taken after the last steps of the test running
+ * on each thread, so a failure report shows how the page got into its final state. Screenshots
+ * are kept as the Base64 text returned by the driver and only decoded when they are written.
+ * <p>
+ * The ring is off by default, because every screenshot costs a round trip to the browser.
+ * It is enabled with {@code -Dartifacts.stepScreenshots=N}, the number of steps to keep.
+ * </p>
+ */
+public final class StepScreenshots {
+
+    private static final int CAPACITY = Integer.getInteger("artifacts.stepScreenshots", 0);
+
+    private static final ThreadLocal<Deque<StepScreenshot>> RING = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * A screenshot taken after a step.
+     *
+     * @param step      the description of the step.
+     * @param takenAt   when the screenshot was taken, in milliseconds since the epoch.
+     * @param base64Png the screenshot as Base64-encoded PNG.
+     */
+    public record StepScreenshot(String step, long takenAt, String base64Png) {
+    }
+
+    private StepScreenshots() {
+    }
+
+    /**
+     * Checks whether step screenshots are taken in this run.
+     *
+     * @return true if the ring holds at least one screenshot.
+     */
+    public static boolean isEnabled() {
+        return CAPACITY > 0;
+    }
+
+    /**
+     * Takes a screenshot after a step and adds it to the current thread's ring, dropping the oldest one
+     * if the ring is full. Does nothing if step screenshots are disabled or the screenshot fails.
+     *
+     * @param driver the driver of the session.
+     * @param step   the description of the step.
+     */
+    public static void capture(WebDriver driver, String step) {
+        if (!isEnabled() || !(driver instanceof TakesScreenshot)) {
+            return;
+        }
+        String screenshot;
+        try {
+            screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BASE64);
+        } catch (WebDriverException e) {
+            return;
+        }
+        Deque<StepScreenshot> ring = RING.get();
+        if (ring.size() == CAPACITY) {
+            ring.removeFirst();
+        }
+        ring.addLast(new StepScreenshot(step, System.currentTimeMillis(), screenshot));
+    }
+
+    /**
+     * Removes and returns the screenshots of the current thread's ring, oldest first.
+     *
+     * @return the screenshots of the last steps.
+     */
+    public static List<StepScreenshot> drain() {
+        Deque<StepScreenshot> ring = RING.get();
+        List<StepScreenshot> screenshots = new ArrayList<>(ring);
+        ring.clear();
+        return screenshots;
+    }
+
+}
@@ -0,0 +1,142 @@
+package basePage;
+
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Function;
+
+/**
+ * AdaptiveWait waits for conditions with exponentially growing polling intervals and timeouts
+ * learned from the {@link WaitHistory}. The first checks follow each other quickly, so conditions
+ * that are met almost immediately are noticed almost immediately. Later checks are spread out
+ * to keep the load on the browser low.
+ * <p>
+ * Each wait is identified by a key, usually the wait helper and its locator. Once enough
+ * durations of a wait were recorded by earlier runs, its timeout is their p99 times a safety
+ * factor, kept between a minimum and the default timeout. A wait that is usually met within
+ * a second then fails after a few seconds instead of the full default timeout.
+ * </p>
+ * Tuned with system properties:
+ * <ul>
+ *     <li>{@code wait.initialPollingMillis}: the first polling interval (10 ms).</li>
+ *     <li>{@code wait.maxPollingMillis}: the largest polling interval (500 ms).</li>
+ *     <li>{@code wait.safetyFactor}: how much longer than the p99 a wait may take (3).</li>
+ *     <li>{@code wait.minTimeoutMillis}: the shortest learned timeout (2000 ms).</li>
+ *     <li>{@code wait.minSamples}: how many earlier durations are needed to learn a timeout (20).</li>
+ *     <li>{@code wait.adaptive}: set to false to always use the default timeout (true).</li>
+ * </ul>
+ */
+public final class AdaptiveWait {
+
+    private static final Duration INITIAL_POLLING = Duration.ofMillis(Long.getLong("wait.initialPollingMillis", 10));
+    private static final Duration MAX_POLLING = Duration.ofMillis(Long.getLong("wait.maxPollingMillis", 500));
+    private static final double SAFETY_FACTOR = Double.parseDouble(System.getProperty("wait.safetyFactor", "3"));
+    private static final Duration MIN_TIMEOUT = Duration.ofMillis(Long.getLong("wait.minTimeoutMillis", 2000));
+    private static final int MIN_SAMPLES = Integer.getInteger("wait.minSamples", 20);
+    private static final boolean ADAPTIVE = Boolean.parseBoolean(System.getProperty("wait.adaptive", "true"));
+
+    private final WebDriver driver;
+    private final Clock clock;
+    private final Duration defaultTimeout;
+    private final WaitHistory history;
+
+    /**
+     * Creates an adaptive wait.
+     *
+     * @param driver         the driver the conditions are evaluated with.
+     * @param clock          the clock measuring the timeout.
+     * @param defaultTimeout the timeout of waits without enough history, and the largest learned timeout.
+     * @param history        the durations of earlier waits.
+     */
+    public AdaptiveWait(WebDriver driver, Clock clock, Duration defaultTimeout, WaitHistory history) {
+        this.driver = driver;
+        this.clock = clock;
+        this.defaultTimeout = defaultTimeout;
+        this.history = history;
+    }
+
+    /**
+     * Computes the timeout of a wait from the durations recorded by earlier runs.
+     *
+     * @param key the wait and locator.
+     * @return the learned timeout, or the default timeout if there is not enough history.
+     */
+    public Duration timeoutFor(String key) {
+        Duration p99 = ADAPTIVE ? history.previousP99(key, MIN_SAMPLES) : null;
+        if (p99 == null) {
+            return defaultTimeout;
+        }
+        Duration learned = Duration.ofMillis((long) (p99.toMillis() * SAFETY_FACTOR));
+        return learned.compareTo(MIN_TIMEOUT) < 0 ? MIN_TIMEOUT
+                : learned.compareTo(defaultTimeout) > 0 ? defaultTimeout : learned;
+    }
+
+    /**
+     * Waits until the condition returns a value other than null or false, with the learned timeout.
+     *
+     * @param key       the wait and locator, under which the duration is recorded.
+     * @param condition the condition to wait for.
+     * @param <T>       the type of the condition's value.
+     * @return the value of the condition.
+     * @throws TimeoutException if the condition was not met in time.
+     */
+    public <T> T until(String key, Function<? super WebDriver, T> condition) {
+        return until(key, null, condition);
+    }
+
+    /**
+     * Waits until the condition returns a value other than null or false. Elements that are not
+     * found or went stale while the condition is evaluated count as the condition not being met.
+     *
+     * @param key       the wait and locator, under which the duration is recorded.
+     * @param timeout   the timeout of this call, or null to use the learned timeout.
+     * @param condition the condition to wait for.
+     * @param <T>       the type of the condition's value.
+     * @return the value of the condition.
+     * @throws TimeoutException if the condition was not met in time.
+     */
+    public <T> T until(String key, Duration timeout, Function<? super WebDriver, T> condition) {
+        Duration limit = timeout != null ? timeout : timeoutFor(key);
+        Instant start = clock.instant();
+        Instant end = start.plus(limit);
+        Duration polling = INITIAL_POLLING;
+        RuntimeException lastException = null;
+        while (true) {
+            try {
+                T value = condition.apply(driver);
+                if (value != null && !Boolean.FALSE.equals(value)) {
+                    history.record(key, Duration.between(start, clock.instant()));
+                    return value;
+                }
+            } catch (NotFoundException | StaleElementReferenceException e) {
+                lastException = e;
+            }
+            Duration remaining = Duration.between(clock.instant(), end);
+            if (remaining.isNegative() || remaining.isZero()) {
+                throw new TimeoutException("Expected condition failed: waiting for " + condition
+                        + " (tried for " + limit.toMillis() + " ms with adaptive polling)", lastException);
+            }
+            sleep(polling.compareTo(remaining) < 0 ? polling : remaining);
+            polling = polling.multipliedBy(2);
+            if (polling.compareTo(MAX_POLLING) > 0) {
+                polling = MAX_POLLING;
+            }
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException(e);
+        }
+    }
+
+}
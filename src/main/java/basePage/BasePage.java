@@ -1,12 +1,29 @@
 package basePage;
 
+import artifacts.StepScreenshots;
+import driver.SessionMode;
+import impact.ImpactTrace;
+import metrics.ActionKey;
+import metrics.LatencyRecorder;
+import metrics.PagePerformance;
 import org.openqa.selenium.*;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.testng.Assert;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * BasePage is an abstract base class providing utility methods for common
@@ -15,73 +32,382 @@ import java.util.List;
  */
 public abstract class BasePage {
 
+    /**
+     * How long the page must stay without network activity to be considered stable.
+     * Configurable through the {@code app.stable.quietMillis} system property.
+     */
+    protected static final Duration APP_STABLE_QUIET_WINDOW =
+            Duration.ofMillis(Long.getLong("app.stable.quietMillis", 300));
+
+    /**
+     * How often the application stability is checked while waiting for it.
+     */
+    private static final Duration APP_STABLE_POLLING = Duration.ofMillis(50);
+
+    /**
+     * The names of the locator fields of every page object class, by locator, for the {@link ImpactTrace}.
+     */
+    private static final Map<Class<?>, Map<By, String>> LOCATOR_FIELDS = new ConcurrentHashMap<>();
+
+    /**
+     * Script that installs a hook counting in-flight XHR and fetch requests (once per document)
+     * and returns the number of requests in flight, the milliseconds since the last network
+     * activity and the document ready state. Completed resource timing entries are counted
+     * as activity too, so requests started before the hook was installed are noticed.
+     */
+    private static final String APP_STABLE_SCRIPT =
+            "var state = window.__appStable;"
+            + "if (!state) {"
+            + "  state = window.__appStable = { inFlight: 0, lastActivity: Date.now(), resources: -1 };"
+            + "  var begin = function () { state.inFlight++; state.lastActivity = Date.now(); };"
+            + "  var end = function () { state.inFlight = Math.max(0, state.inFlight - 1); state.lastActivity = Date.now(); };"
+            + "  var send = XMLHttpRequest.prototype.send;"
+            + "  XMLHttpRequest.prototype.send = function () {"
+            + "    begin();"
+            + "    this.addEventListener('loadend', end);"
+            + "    try { return send.apply(this, arguments); } catch (e) { end(); throw e; }"
+            + "  };"
+            + "  if (window.fetch) {"
+            + "    var originalFetch = window.fetch;"
+            + "    window.fetch = function () {"
+            + "      begin();"
+            + "      try { return originalFetch.apply(this, arguments).finally(end); } catch (e) { end(); throw e; }"
+            + "    };"
+            + "  }"
+            + "  if (performance.setResourceTimingBufferSize) { performance.setResourceTimingBufferSize(10000); }"
+            + "}"
+            + "var resources = performance.getEntriesByType('resource').length;"
+            + "if (resources !== state.resources) { state.resources = resources; state.lastActivity = Date.now(); }"
+            + "return [state.inFlight, Date.now() - state.lastActivity, document.readyState];";
+
+    /**
+     * Script function that finds all elements for a locator given as the {@code using}
+     * and {@code value} of its remote parameters, the same way the driver would.
+     */
+    static final String FIND_FUNCTION =
+            "var find = function (using, value) {"
+            + "  if (using === 'xpath') {"
+            + "    var result = document.evaluate(value, document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);"
+            + "    var nodes = [];"
+            + "    for (var i = 0; i < result.snapshotLength; i++) { nodes.push(result.snapshotItem(i)); }"
+            + "    return nodes;"
+            + "  }"
+            + "  if (using === 'css selector') { return Array.prototype.slice.call(document.querySelectorAll(value)); }"
+            + "  if (using === 'tag name') { return Array.prototype.slice.call(document.getElementsByTagName(value)); }"
+            + "  return Array.prototype.slice.call(document.getElementsByTagName('a')).filter(function (link) {"
+            + "    var text = link.innerText.trim();"
+            + "    return using === 'link text' ? text === value : text.indexOf(value) >= 0;"
+            + "  });"
+            + "};";
+
+    /**
+     * Script returning the number of elements matching each locator.
+     */
+    private static final String COUNT_SCRIPT = FIND_FUNCTION
+            + "return arguments[0].map(function (l) { return find(l[0], l[1]).length; });";
+
+    /**
+     * Script returning the rendered text of the first element matching each locator, or null.
+     */
+    private static final String TEXT_SCRIPT = FIND_FUNCTION
+            + "return arguments[0].map(function (l) {"
+            + "  var element = find(l[0], l[1])[0];"
+            + "  return element ? element.innerText.trim() : null;"
+            + "});";
+
+    /**
+     * Script returning an attribute of the first element matching each locator, or null.
+     */
+    private static final String ATTRIBUTE_SCRIPT = FIND_FUNCTION
+            + "var attribute = arguments[1];"
+            + "return arguments[0].map(function (l) {"
+            + "  var element = find(l[0], l[1])[0];"
+            + "  return element ? element.getAttribute(attribute) : null;"
+            + "});";
+
+    /**
+     * Script setting the value of the first element matching each locator through the native
+     * value setter, then dispatching the input, change and blur events frameworks listen to.
+     * Returns the indexes of the locators that matched no element.
+     */
+    private static final String FILL_SCRIPT = FIND_FUNCTION
+            + "var missing = [];"
+            + "arguments[0].forEach(function (l, index) {"
+            + "  var element = find(l[0], l[1])[0];"
+            + "  if (!element) { missing.push(index); return; }"
+            + "  var prototype = element instanceof HTMLSelectElement ? HTMLSelectElement.prototype"
+            + "      : element instanceof HTMLTextAreaElement ? HTMLTextAreaElement.prototype : HTMLInputElement.prototype;"
+            + "  element.focus();"
+            + "  Object.getOwnPropertyDescriptor(prototype, 'value').set.call(element, l[2]);"
+            + "  element.dispatchEvent(new Event('input', { bubbles: true }));"
+            + "  element.dispatchEvent(new Event('change', { bubbles: true }));"
+            + "  element.blur();"
+            + "});"
+            + "return missing;";
+
     /**
      * WebDriver instance for interacting with the browser. 
      */
     protected WebDriver driver;
 
     /**
-     * WebDriverWait instance for handling dynamic waits. 
+     * WebDriverWait instance with a fixed timeout and polling interval, shared by all pages of the session.
+     * The wait helpers of this class use the session's {@link AdaptiveWait} instead.
      */
     protected WebDriverWait wait;
 
+    /**
+     * The context of the browser session, holding the other page objects and the shared waits.
+     */
+    private final PageContext context;
+
+    /**
+     * Elements already located on this page, by locator. Entries are replaced whenever a wait
+     * locates the element again, and dropped when the element went stale because the page
+     * navigated or re-rendered it.
+     */
+    private final Map<By, WebElement> elementCache = new HashMap<>();
+
     /**
      * Constructor to initialize the BasePage with a WebDriver instance.
+     * The page uses the waits of the session's {@link PageContext}.
      *
      * @param driver the WebDriver instance to interact with the browser.
      */
     public BasePage(WebDriver driver) {
         this.driver = driver;
-        this.wait = new WebDriverWait(driver, Duration.ofSeconds(15));
+        this.context = PageContext.of(driver);
+        this.wait = context.getWait();
     }
 
     /**
-     * Waits until the specified element is visible on the page.
+     * Retrieves another page object of the same browser session, creating it on first use.
+     *
+     * @param type the class of the page object.
+     * @param <T>  the type of the page object.
+     * @return the page object.
+     */
+    protected <T extends BasePage> T page(Class<T> type) {
+        return context.page(type);
+    }
+
+    /**
+     * Waits until the specified element is visible on the page, with the timeout learned for it.
      *
      * @param elementBy the locator of the element to wait for.
      */
     public void waitVisibility(By elementBy) {
-        wait.until(ExpectedConditions.visibilityOfElementLocated(elementBy));
+        waitVisibility(elementBy, null);
     }
 
     /**
-     * Waits until the specified element contains the expected text.
+     * Waits until the specified element is visible on the page.
+     *
+     * @param elementBy the locator of the element to wait for.
+     * @param timeout the timeout of this wait, or null to use the timeout learned for it.
+     */
+    public void waitVisibility(By elementBy, Duration timeout) {
+        measure("waitVisibility", elementBy, () -> elementCache.put(elementBy,
+                waitUntil("waitVisibility", elementBy, timeout, ObservedWait.Condition.VISIBLE, null,
+                        ExpectedConditions.visibilityOfElementLocated(elementBy))));
+    }
+
+    /**
+     * Waits until the specified element contains the expected text, with the timeout learned for it.
      *
      * @param elementBy the locator of the element to wait for.
      * @param text the expected text to be present in the element.
      */
     public void waitForTextToBeLoaded(By elementBy, String text) {
-        waitVisibility(elementBy);
-        WebElement element = driver.findElement(elementBy);
-        wait.until(ExpectedConditions.textToBePresentInElement(element, text));
+        waitForTextToBeLoaded(elementBy, text, null);
     }
 
     /**
-     * Waits until the specified element is no longer visible on the page.
+     * Waits until the specified element contains the expected text.
+     *
+     * @param elementBy the locator of the element to wait for.
+     * @param text the expected text to be present in the element.
+     * @param timeout the timeout of this wait, or null to use the timeout learned for it.
+     */
+    public void waitForTextToBeLoaded(By elementBy, String text, Duration timeout) {
+        measure("waitForTextToBeLoaded", elementBy, () -> {
+            waitVisibility(elementBy, timeout);
+            waitUntil("waitForTextToBeLoaded", elementBy, timeout, ObservedWait.Condition.TEXT, text,
+                    ExpectedConditions.textToBePresentInElementLocated(elementBy, text));
+        });
+    }
+
+    /**
+     * Waits until the specified element is no longer visible on the page, with the timeout learned for it.
      *
      * @param elementBy the locator of the element to wait for invisibility.
      */
     public void waitInvisibility(By elementBy) {
-        wait.until(ExpectedConditions.invisibilityOfElementLocated(elementBy));
+        waitInvisibility(elementBy, null);
     }
 
     /**
-     * Waits until the specified element is clickable.
+     * Waits until the specified element is no longer visible on the page.
+     *
+     * @param elementBy the locator of the element to wait for invisibility.
+     * @param timeout the timeout of this wait, or null to use the timeout learned for it.
+     */
+    public void waitInvisibility(By elementBy, Duration timeout) {
+        measure("waitInvisibility", elementBy, () ->
+                waitUntil("waitInvisibility", elementBy, timeout, ObservedWait.Condition.INVISIBLE, null,
+                        ExpectedConditions.invisibilityOfElementLocated(elementBy)));
+    }
+
+    /**
+     * Waits until the specified element is clickable, with the timeout learned for it.
      *
      * @param elementBy the locator of the element to wait for.
      */
     public void waitToBeClickable(By elementBy) {
-        wait.until(ExpectedConditions.elementToBeClickable(elementBy));
+        waitToBeClickable(elementBy, null);
+    }
+
+    /**
+     * Waits until the specified element is clickable.
+     *
+     * @param elementBy the locator of the element to wait for.
+     * @param timeout the timeout of this wait, or null to use the timeout learned for it.
+     */
+    public void waitToBeClickable(By elementBy, Duration timeout) {
+        measure("waitToBeClickable", elementBy, () -> elementCache.put(elementBy,
+                waitUntil("waitToBeClickable", elementBy, timeout, ObservedWait.Condition.CLICKABLE, null,
+                        ExpectedConditions.elementToBeClickable(elementBy))));
+    }
+
+    /**
+     * Waits for a condition with the session's {@link AdaptiveWait}: fast polling that backs off
+     * exponentially, and a timeout learned from the earlier durations of the same wait. With the
+     * {@link WaitBackend#MUTATION_OBSERVER} backend, the page observes the condition instead and
+     * the {@link ObservedWait} only polls after a navigation. User contexts of a shared browser always
+     * poll, because an asynchronous script would hold the browser's lock for the whole wait.
+     *
+     * @param action    the name of the wait helper.
+     * @param elementBy the locator the wait is about.
+     * @param timeout   the timeout of this wait, or null to use the learned timeout.
+     * @param observed  the same condition as observed in the page.
+     * @param text      the expected text of a text condition, otherwise null.
+     * @param condition the condition to wait for.
+     * @param <T>       the type of the condition's value.
+     * @return the value of the condition.
+     */
+    private <T> T waitUntil(String action, By elementBy, Duration timeout, ObservedWait.Condition observed, String text,
+                            Function<? super WebDriver, T> condition) {
+        String key = action + " " + elementBy;
+        if (WaitBackend.current() == WaitBackend.MUTATION_OBSERVER && elementBy instanceof By.Remotable
+                && SessionMode.current() != SessionMode.USER_CONTEXTS) {
+            return context.getObservedWait().until(key, timeout, elementBy, observed, text, condition);
+        }
+        return context.getAdaptiveWait().until(key, timeout, condition);
+    }
+
+    /**
+     * Waits until the application is stable: the document is loaded, no XHR or fetch request
+     * is in flight and there was no network activity for {@link #APP_STABLE_QUIET_WINDOW}.
+     */
+    public void waitForAppStable() {
+        waitForAppStable(APP_STABLE_QUIET_WINDOW);
+    }
+
+    /**
+     * Waits until the application is stable: the document is loaded, no XHR or fetch request
+     * is in flight and there was no network activity for the given quiet window.
+     *
+     * @param quietWindow how long the page must stay without network activity.
+     */
+    public void waitForAppStable(Duration quietWindow) {
+        long quietMillis = quietWindow.toMillis();
+        measure("waitForAppStable", null, () ->
+                context.getWait(APP_STABLE_POLLING).until(webDriver -> {
+                    List<?> state = (List<?>) ((JavascriptExecutor) webDriver).executeScript(APP_STABLE_SCRIPT);
+                    long inFlight = ((Number) state.get(0)).longValue();
+                    long idleMillis = ((Number) state.get(1)).longValue();
+                    return "complete".equals(state.get(2)) && inFlight == 0 && idleMillis >= quietMillis;
+                }));
+    }
+
+    /**
+     * Captures the page performance after a step, once the application is stable, and checks it
+     * against the budgets of this page and step. Does nothing unless the suite runs with {@code -Dperf=true}.
+     *
+     * @param step the name of the step that just finished, usually the page object method.
+     */
+    protected void capturePerformance(String step) {
+        if (PagePerformance.isEnabled()) {
+            waitForAppStable();
+            PagePerformance.capture(driver, getClass().getSimpleName(), step);
+        }
     }
 
     /**
-     * Retrieves a single WebElement based on the provided locator.
+     * Runs a named stage of a flow and saves a checkpoint after it, so a retry of the test resumes
+     * after the stage instead of running it again. Every step of a resumable flow belongs to a stage.
+     *
+     * @param name  the name of the stage, unique within the flow.
+     * @param stage the steps of the stage.
+     * @see Checkpoints
+     */
+    protected void checkpoint(String name, Runnable stage) {
+        Checkpoints.run(driver, name, stage);
+    }
+
+    /**
+     * Retrieves a single WebElement based on the provided locator, from the element cache
+     * if it was already located on this page.
      *
      * @param locator the locator of the element to retrieve.
      * @return the WebElement found by the locator.
      */
     private WebElement getElement(By locator) {
-        return driver.findElement(locator);
+        WebElement element = elementCache.get(locator);
+        if (element == null) {
+            element = driver.findElement(locator);
+            elementCache.put(locator, element);
+        }
+        return element;
+    }
+
+    /**
+     * Performs an action on the element identified by the locator. If the cached element went
+     * stale, it is located again and the action is retried once.
+     *
+     * @param locator the locator of the element.
+     * @param action  the action to perform on the element.
+     */
+    private void actOn(By locator, Consumer<WebElement> action) {
+        readFrom(locator, element -> {
+            action.accept(element);
+            return null;
+        });
+    }
+
+    /**
+     * Reads a value from the element identified by the locator. If the cached element went
+     * stale, it is located again and the read is retried once.
+     *
+     * @param locator the locator of the element.
+     * @param read    the function reading the value from the element.
+     * @param <T>     the type of the value.
+     * @return the value read from the element.
+     */
+    private <T> T readFrom(By locator, Function<WebElement, T> read) {
+        try {
+            return read.apply(getElement(locator));
+        } catch (StaleElementReferenceException e) {
+            elementCache.remove(locator);
+            return read.apply(getElement(locator));
+        }
+    }
+
+    /**
+     * Forgets every element located on this page. Called after navigating to a new document.
+     */
+    protected void invalidateElementCache() {
+        elementCache.clear();
     }
 
     /**
@@ -91,7 +417,7 @@ public abstract class BasePage {
      * @return a list of WebElements found by the locator.
      */
     public List<WebElement> getElements(By elementBy) {
-        return driver.findElements(elementBy);
+        return measureAndGet("getElements", elementBy, () -> driver.findElements(elementBy));
     }
 
     /**
@@ -100,8 +426,8 @@ public abstract class BasePage {
      * @param elementBy the locator of the element to click.
      */
     protected void clickElement(By elementBy) {
-        WebElement element = getElement(elementBy);
-        element.click();
+        measure("clickElement", elementBy, () -> actOn(elementBy, WebElement::click));
+        StepScreenshots.capture(driver, "clickElement " + elementBy);
     }
 
     /**
@@ -110,7 +436,8 @@ public abstract class BasePage {
      * @param elementBy the locator of the input element to clear.
      */
     public void clearText(By elementBy) {
-        getElement(elementBy).clear();
+        measure("clearText", elementBy, () -> actOn(elementBy, WebElement::clear));
+        StepScreenshots.capture(driver, "clearText " + elementBy);
     }
 
     /**
@@ -120,9 +447,11 @@ public abstract class BasePage {
      * @param text the text to type into the input element.
      */
     protected void typeIn(By elementBy, String text) {
-        WebElement element = getElement(elementBy);
-        clearText(elementBy);
-        element.sendKeys(text);
+        measure("typeIn", elementBy, () -> actOn(elementBy, element -> {
+            element.clear();
+            element.sendKeys(text);
+        }));
+        StepScreenshots.capture(driver, "typeIn " + elementBy);
     }
 
     /**
@@ -132,7 +461,7 @@ public abstract class BasePage {
      * @return the text content of the element.
      */
     public String getText(By elementBy) {
-        return getElement(elementBy).getText();
+        return measureAndGet("getText", elementBy, () -> readFrom(elementBy, WebElement::getText));
     }
 
     /**
@@ -142,7 +471,131 @@ public abstract class BasePage {
      * @return the number of elements matching the locator.
      */
     public int getNumberOfElements(By elementBy) {
-        return getElements(elementBy).size();
+        return countElements(elementBy).get(elementBy);
+    }
+
+    /**
+     * Counts the elements matching each of the specified locators in a single script call.
+     *
+     * @param locators the locators of the elements to count.
+     * @return the number of matching elements by locator, in the order of the locators.
+     */
+    public Map<By, Integer> countElements(By... locators) {
+        List<?> counts = measureAndGet("countElements", locators, () ->
+                (List<?>) executeScript(COUNT_SCRIPT, toScriptLocators(locators)));
+        Map<By, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < locators.length; i++) {
+            result.put(locators[i], ((Number) counts.get(i)).intValue());
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves the rendered text of the first element matching each of the specified locators
+     * in a single script call.
+     *
+     * @param locators the locators of the elements.
+     * @return the trimmed text by locator, or null for locators matching no element.
+     */
+    public Map<By, String> getTexts(By... locators) {
+        return toResultMap(locators, measureAndGet("getTexts", locators, () ->
+                (List<?>) executeScript(TEXT_SCRIPT, toScriptLocators(locators))));
+    }
+
+    /**
+     * Retrieves an attribute of the first element matching each of the specified locators
+     * in a single script call.
+     *
+     * @param attribute the name of the attribute.
+     * @param locators  the locators of the elements.
+     * @return the attribute value by locator, or null for missing elements and attributes.
+     */
+    public Map<By, String> getAttributes(String attribute, By... locators) {
+        return toResultMap(locators, measureAndGet("getAttributes", locators, () ->
+                (List<?>) executeScript(ATTRIBUTE_SCRIPT, toScriptLocators(locators), attribute)));
+    }
+
+    /**
+     * Fills in several form fields in a single script call. Each value is set through the
+     * element's native value setter, followed by the input, change and blur events, so the
+     * application's form bindings see the new values as if they were typed.
+     *
+     * @param values the values to enter, by the locator of their input, select or textarea element.
+     * @throws NoSuchElementException if some of the locators match no element.
+     */
+    protected void fillForm(Map<By, String> values) {
+        List<List<Object>> fields = new ArrayList<>();
+        List<By> locators = new ArrayList<>(values.keySet());
+        for (By locator : locators) {
+            List<Object> field = new ArrayList<>(toScriptLocator(locator));
+            field.add(values.get(locator));
+            fields.add(field);
+        }
+        List<?> missing = measureAndGet("fillForm", locators.toArray(new By[0]), () -> (List<?>) executeScript(FILL_SCRIPT, fields));
+        if (!missing.isEmpty()) {
+            List<By> missingLocators = new ArrayList<>();
+            for (Object index : missing) {
+                missingLocators.add(locators.get(((Number) index).intValue()));
+            }
+            throw new NoSuchElementException("Cannot fill in missing form fields " + missingLocators);
+        }
+        StepScreenshots.capture(driver, "fillForm " + locators);
+    }
+
+    /**
+     * Executes a script in the context of the current page.
+     *
+     * @param script the script to execute.
+     * @param args   the arguments of the script.
+     * @return the value returned by the script.
+     */
+    private Object executeScript(String script, Object... args) {
+        return ((JavascriptExecutor) driver).executeScript(script, args);
+    }
+
+    /**
+     * Converts locators to the [using, value] pairs understood by {@link #FIND_FUNCTION}.
+     *
+     * @param locators the locators to convert.
+     * @return the script arguments describing the locators.
+     */
+    private static List<List<Object>> toScriptLocators(By... locators) {
+        List<List<Object>> result = new ArrayList<>();
+        for (By locator : locators) {
+            result.add(toScriptLocator(locator));
+        }
+        return result;
+    }
+
+    /**
+     * Converts a locator to the [using, value] pair understood by {@link #FIND_FUNCTION}.
+     *
+     * @param locator the locator to convert.
+     * @return the script argument describing the locator.
+     * @throws IllegalArgumentException if the locator cannot be evaluated by a script.
+     */
+    static List<Object> toScriptLocator(By locator) {
+        if (!(locator instanceof By.Remotable)) {
+            throw new IllegalArgumentException("Locator cannot be evaluated in a script: " + locator);
+        }
+        By.Remotable.Parameters parameters = ((By.Remotable) locator).getRemoteParameters();
+        return List.of(parameters.using(), String.valueOf(parameters.value()));
+    }
+
+    /**
+     * Pairs the values returned by a script with the locators they were read for.
+     *
+     * @param locators the locators, in the order they were passed to the script.
+     * @param values   the values returned by the script.
+     * @return the values by locator.
+     */
+    private static Map<By, String> toResultMap(By[] locators, List<?> values) {
+        Map<By, String> result = new LinkedHashMap<>();
+        for (int i = 0; i < locators.length; i++) {
+            Object value = values.get(i);
+            result.put(locators[i], value == null ? null : value.toString());
+        }
+        return result;
     }
 
     /**
@@ -161,7 +614,124 @@ public abstract class BasePage {
      * @param elementBy the locator of the element to check.
      */
     public void assertElementDisplayed(By elementBy) {
-        Assert.assertTrue(getElement(elementBy).isDisplayed());
+        Assert.assertTrue(measureAndGet("assertElementDisplayed", elementBy, () -> readFrom(elementBy, WebElement::isDisplayed)));
+    }
+
+    /**
+     * Runs a helper and records its latency when metrics are enabled. While the helper runs,
+     * it is marked as the current action, so the WebDriver commands it issues are tagged with it.
+     *
+     * @param action  the name of the helper.
+     * @param locator the locator (or locators) the helper works on, or null if there is none.
+     * @param body    the work of the helper.
+     */
+    private void measure(String action, Object locator, Runnable body) {
+        measureAndGet(action, locator, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a helper returning a value and records its latency when metrics are enabled.
+     *
+     * @param action  the name of the helper.
+     * @param locator the locator (or locators) the helper works on, or null if there is none.
+     * @param body    the work of the helper.
+     * @param <T>     the type of the returned value.
+     * @return the value returned by the helper.
+     */
+    private <T> T measureAndGet(String action, Object locator, Supplier<T> body) {
+        if (ImpactTrace.isTracing()) {
+            traceImpact(locator);
+        }
+        if (!LatencyRecorder.isEnabled()) {
+            return body.get();
+        }
+        ActionKey key = actionKey(action, locator);
+        ActionKey previous = LatencyRecorder.enterAction(key);
+        long start = System.nanoTime();
+        try {
+            return body.get();
+        } finally {
+            LatencyRecorder.record(key, System.nanoTime() - start);
+            LatencyRecorder.exitAction(previous);
+        }
+    }
+
+    /**
+     * Records the page object methods on the stack and the locator fields of a helper call for the
+     * {@link ImpactTrace} of the running test. Stages of a flow are recorded as the method declaring them.
+     *
+     * @param locator the locator (or locators) the helper works on, or null if there is none.
+     */
+    private void traceImpact(Object locator) {
+        StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE).forEach(frame -> {
+            Class<?> type = frame.getDeclaringClass();
+            if (type != BasePage.class && BasePage.class.isAssignableFrom(type)) {
+                String method = frame.getMethodName();
+                if (method.startsWith("lambda$")) {
+                    method = method.substring("lambda$".length(), method.indexOf('$', "lambda$".length()));
+                }
+                ImpactTrace.record(type.getSimpleName() + "." + method);
+            }
+        });
+        Map<By, String> fields = LOCATOR_FIELDS.computeIfAbsent(getClass(), type -> locatorFields());
+        for (Object one : locator instanceof Object[] locators ? locators : new Object[] {locator}) {
+            String field = one instanceof By by ? fields.get(by) : null;
+            if (field != null) {
+                ImpactTrace.record(field);
+            }
+        }
+    }
+
+    /**
+     * Finds the locator fields of this page object and of the page objects it extends.
+     *
+     * @return the name of every locator field, as {@code PageClass.field}, by locator.
+     */
+    private Map<By, String> locatorFields() {
+        Map<By, String> fields = new HashMap<>();
+        for (Class<?> type = getClass(); type != BasePage.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (!By.class.isAssignableFrom(field.getType())) {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    Object value = field.get(Modifier.isStatic(field.getModifiers()) ? null : this);
+                    if (value instanceof By by) {
+                        fields.putIfAbsent(by, type.getSimpleName() + "." + field.getName());
+                    }
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Could not read the locator " + field, e);
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Builds the key of a helper call, tagged with the page object method that made it.
+     *
+     * @param action  the name of the helper.
+     * @param locator the locator (or locators) the helper works on, or null if there is none.
+     * @return the key of the helper call.
+     */
+    private ActionKey actionKey(String action, Object locator) {
+        StackWalker.StackFrame caller = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE)
+                .walk(frames -> frames
+                        .filter(frame -> frame.getDeclaringClass() != BasePage.class
+                                && BasePage.class.isAssignableFrom(frame.getDeclaringClass()))
+                        .findFirst()
+                        .orElse(null));
+        String locatorText = locator == null ? "-"
+                : locator instanceof Object[] ? Arrays.toString((Object[]) locator) : locator.toString();
+        return new ActionKey(
+                caller != null ? caller.getDeclaringClass().getSimpleName() : getClass().getSimpleName(),
+                caller != null ? caller.getMethodName() : "-",
+                action,
+                locatorText);
     }
 
 }
@@ -0,0 +1,155 @@
+package basePage;
+
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.net.URI;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checkpoints let a retried test resume a long page object flow after its last successful stage instead
+ * of starting over. A flow is split into named stages with {@link BasePage#checkpoint(String, Runnable)};
+ * after a stage succeeds, the cookies, local and session storage and URL of the browser are saved under
+ * the test's key. When the same test runs again, the stages that already succeeded are skipped and the
+ * state saved after the last of them is restored into the new browser session before the next stage runs.
+ * <p>
+ * Only the state of the browser is restored, so a stage must end where its URL and storage are enough
+ * to get back to, not in the middle of a form or wizard. The state of the application's server, such as
+ * the contents of the cart, is still there. A checkpoint costs two WebDriver commands and is kept in
+ * memory until the test succeeds or runs out of retries. Disabled with {@code -Dcheckpoints=false}.
+ * </p>
+ */
+public final class Checkpoints {
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("checkpoints", "true"));
+
+    /**
+     * Reads the URL and both storages in one round trip.
+     */
+    private static final String CAPTURE_SCRIPT =
+            "function dump(storage) {"
+            + "  var values = {};"
+            + "  try { for (var i = 0; i < storage.length; i++) { var key = storage.key(i); values[key] = storage.getItem(key); } }"
+            + "  catch (e) {}"
+            + "  return values;"
+            + "}"
+            + "return [window.location.href, dump(window.localStorage), dump(window.sessionStorage)];";
+
+    private static final String RESTORE_SCRIPT =
+            "function load(storage, values) { storage.clear(); for (var key in values) { storage.setItem(key, values[key]); } }"
+            + "load(window.localStorage, arguments[0]);"
+            + "load(window.sessionStorage, arguments[1]);";
+
+    private static final Map<String, Checkpoints> BY_TEST = new ConcurrentHashMap<>();
+
+    private static final Map<WebDriver, Checkpoints> BY_DRIVER = new ConcurrentHashMap<>();
+
+    /**
+     * The browser state saved after a stage.
+     */
+    private record Snapshot(String url, Set<Cookie> cookies, Map<?, ?> localStorage, Map<?, ?> sessionStorage) {
+    }
+
+    private final Set<String> passed = new HashSet<>();
+    private Snapshot last;
+    private boolean resuming;
+
+    private Checkpoints() {
+    }
+
+    /**
+     * Binds the checkpoints of a test to the browser session running it. If an earlier attempt of the
+     * test saved checkpoints, the flow resumes after them.
+     *
+     * @param driver  the driver of the session.
+     * @param testKey the key of the test, the same for every attempt of it.
+     */
+    public static void begin(WebDriver driver, String testKey) {
+        if (!ENABLED) {
+            return;
+        }
+        Checkpoints checkpoints = BY_TEST.computeIfAbsent(testKey, key -> new Checkpoints());
+        checkpoints.resuming = checkpoints.last != null;
+        BY_DRIVER.put(driver, checkpoints);
+    }
+
+    /**
+     * Unbinds the checkpoints from a browser session, keeping them for the next attempt of the test.
+     *
+     * @param driver the driver of the session.
+     */
+    public static void end(WebDriver driver) {
+        BY_DRIVER.remove(driver);
+    }
+
+    /**
+     * Forgets the checkpoints of a test, once it succeeded or will not be run again.
+     *
+     * @param testKey the key of the test.
+     */
+    public static void discard(String testKey) {
+        BY_TEST.remove(testKey);
+    }
+
+    /**
+     * Runs a stage of a flow, or skips it if an earlier attempt of the test already passed it.
+     * Without bound checkpoints, for example outside of tests, the stage simply runs.
+     *
+     * @param driver the driver of the session.
+     * @param name   the name of the stage, unique within the flow.
+     * @param stage  the steps of the stage.
+     */
+    static void run(WebDriver driver, String name, Runnable stage) {
+        Checkpoints checkpoints = BY_DRIVER.get(driver);
+        if (checkpoints == null) {
+            stage.run();
+            return;
+        }
+        if (checkpoints.resuming) {
+            if (checkpoints.passed.contains(name)) {
+                System.out.println("Skipping stage '" + name + "', passed in an earlier attempt");
+                return;
+            }
+            checkpoints.resuming = false;
+            restore(driver, checkpoints.last);
+        }
+        stage.run();
+        checkpoints.last = capture(driver);
+        checkpoints.passed.add(name);
+    }
+
+    private static Snapshot capture(WebDriver driver) {
+        List<?> state = (List<?>) ((JavascriptExecutor) driver).executeScript(CAPTURE_SCRIPT);
+        return new Snapshot((String) state.get(0), driver.manage().getCookies(),
+                (Map<?, ?>) state.get(1), (Map<?, ?>) state.get(2));
+    }
+
+    /**
+     * Loads the origin of the saved URL, puts the cookies and storage back and then opens the saved URL,
+     * so the application starts with the restored state.
+     */
+    private static void restore(WebDriver driver, Snapshot snapshot) {
+        URI url = URI.create(snapshot.url());
+        String origin = url.getScheme() + "://" + url.getRawAuthority() + "/";
+        if (!driver.getCurrentUrl().startsWith(origin)) {
+            driver.get(origin);
+        }
+        driver.manage().deleteAllCookies();
+        for (Cookie cookie : snapshot.cookies()) {
+            try {
+                driver.manage().addCookie(cookie);
+            } catch (WebDriverException e) {
+                System.out.println("Could not restore the cookie " + cookie.getName() + ": " + e.getMessage());
+            }
+        }
+        ((JavascriptExecutor) driver).executeScript(RESTORE_SCRIPT, snapshot.localStorage(), snapshot.sessionStorage());
+        driver.get(snapshot.url());
+    }
+
+}
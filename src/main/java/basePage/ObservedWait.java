@@ -0,0 +1,206 @@
+package basePage;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * ObservedWait waits for an element condition inside the page instead of polling it over WebDriver.
+ * One asynchronous script checks the condition, and if it is not met yet, installs a MutationObserver
+ * on the document that checks it again after every change. The script returns as soon as the condition
+ * holds, so a wait costs one round trip and reacts within milliseconds. Changes that do not mutate the
+ * document, such as the end of a CSS transition, are caught by transition and animation events and a
+ * check every 100 ms in the page.
+ * <p>
+ * When the document is unloaded while the script waits, the condition spans a navigation and the rest
+ * of the wait polls with the {@link AdaptiveWait}. Once the script reports the condition as met, it is
+ * confirmed over WebDriver, which also returns the element for the caller; if WebDriver disagrees, the
+ * rest of the wait polls as well. Other script failures, such as an invalid locator or a script timeout,
+ * are thrown. Timeouts are learned and durations recorded as for the adaptive wait.
+ * </p>
+ */
+public final class ObservedWait {
+
+    /**
+     * The element conditions the script can observe.
+     */
+    public enum Condition {
+
+        /**
+         * The first matching element is displayed.
+         */
+        VISIBLE,
+
+        /**
+         * The first matching element is not displayed, or there is none.
+         */
+        INVISIBLE,
+
+        /**
+         * The first matching element is displayed and enabled.
+         */
+        CLICKABLE,
+
+        /**
+         * The rendered text of the first matching element contains the expected text.
+         */
+        TEXT
+    }
+
+    /**
+     * How much longer than a wait the driver lets its asynchronous script run.
+     */
+    private static final Duration SCRIPT_TIMEOUT_MARGIN = Duration.ofSeconds(5);
+
+    /**
+     * Script taking the [using, value] locator, the condition, the expected text and the timeout in
+     * milliseconds. It calls back with {@code met}, {@code timeout} or {@code navigated}.
+     */
+    private static final String OBSERVE_SCRIPT = BasePage.FIND_FUNCTION
+            + "var locator = arguments[0], condition = arguments[1], text = arguments[2], timeout = arguments[3];"
+            + "var callback = arguments[arguments.length - 1];"
+            + "var displayed = function (element) {"
+            + "  if (!element || !element.isConnected) { return false; }"
+            + "  var style = window.getComputedStyle(element);"
+            + "  if (style.visibility === 'hidden' || style.display === 'none' || style.opacity === '0') { return false; }"
+            + "  return element.getClientRects().length > 0;"
+            + "};"
+            + "var check = function () {"
+            + "  var element = find(locator[0], locator[1])[0];"
+            + "  if (condition === 'INVISIBLE') { return !displayed(element); }"
+            + "  if (!displayed(element)) { return false; }"
+            + "  if (condition === 'CLICKABLE') { return !element.disabled; }"
+            + "  if (condition === 'TEXT') { return (element.innerText || element.textContent || '').indexOf(text) >= 0; }"
+            + "  return true;"
+            + "};"
+            + "if (check()) { callback('met'); return; }"
+            + "var finished = false, observer, timer, interval;"
+            + "var events = ['transitionend', 'animationend'];"
+            + "var onChange = function () { if (!finished && check()) { finish('met'); } };"
+            + "var onUnload = function () { finish('navigated'); };"
+            + "var finish = function (result) {"
+            + "  if (finished) { return; }"
+            + "  finished = true;"
+            + "  observer.disconnect();"
+            + "  clearTimeout(timer);"
+            + "  clearInterval(interval);"
+            + "  events.forEach(function (name) { document.removeEventListener(name, onChange, true); });"
+            + "  window.removeEventListener('pagehide', onUnload);"
+            + "  callback(result);"
+            + "};"
+            + "observer = new MutationObserver(onChange);"
+            + "observer.observe(document, { childList: true, subtree: true, attributes: true, characterData: true });"
+            + "events.forEach(function (name) { document.addEventListener(name, onChange, true); });"
+            + "window.addEventListener('pagehide', onUnload);"
+            + "interval = setInterval(onChange, 100);"
+            + "timer = setTimeout(function () { finish(check() ? 'met' : 'timeout'); }, timeout);";
+
+    private final WebDriver driver;
+    private final Clock clock;
+    private final AdaptiveWait polling;
+    private final WaitHistory history;
+    private Duration scriptTimeout = Duration.ZERO;
+
+    /**
+     * Creates an observed wait.
+     *
+     * @param driver  the driver of the session.
+     * @param clock   the clock measuring the timeout.
+     * @param polling the adaptive wait of the session, which learns the timeouts and takes over after a navigation.
+     * @param history the durations of earlier waits.
+     */
+    public ObservedWait(WebDriver driver, Clock clock, AdaptiveWait polling, WaitHistory history) {
+        this.driver = driver;
+        this.clock = clock;
+        this.polling = polling;
+        this.history = history;
+    }
+
+    /**
+     * Waits until an element condition holds.
+     *
+     * @param key       the wait and locator, under which the duration is recorded.
+     * @param timeout   the timeout of this call, or null to use the learned timeout.
+     * @param locator   the locator of the element.
+     * @param observed  the condition the page observes.
+     * @param text      the expected text of the {@link Condition#TEXT} condition, otherwise null.
+     * @param condition the same condition evaluated over WebDriver, which confirms the result and falls back to polling.
+     * @param <T>       the type of the condition's value.
+     * @return the value of the WebDriver condition.
+     * @throws TimeoutException if the condition was not met in time.
+     */
+    public <T> T until(String key, Duration timeout, By locator, Condition observed, String text,
+                       Function<? super WebDriver, T> condition) {
+        Duration limit = timeout != null ? timeout : polling.timeoutFor(key);
+        Instant start = clock.instant();
+        Instant end = start.plus(limit);
+        ensureScriptTimeout(limit);
+        Object result;
+        try {
+            result = ((JavascriptExecutor) driver).executeAsyncScript(OBSERVE_SCRIPT,
+                    BasePage.toScriptLocator(locator), observed.name(), text, limit.toMillis());
+        } catch (JavascriptException e) {
+            if (!isUnload(e)) {
+                throw e;
+            }
+            result = "navigated";
+        }
+        if ("met".equals(result)) {
+            T value = confirm(condition);
+            if (value != null) {
+                history.record(key, Duration.between(start, clock.instant()));
+                return value;
+            }
+            // The page and WebDriver disagree, for example about an element that is only partly visible.
+        } else if (!"navigated".equals(result)) {
+            throw new TimeoutException("Expected condition failed: waiting for " + condition
+                    + " (observed for " + limit.toMillis() + " ms)");
+        }
+        return polling.until(key, Duration.between(clock.instant(), end), condition);
+    }
+
+    /**
+     * Tells whether the script failed because the document was unloaded while it waited, as reported by
+     * Chrome ("document unloaded while waiting for result") and Firefox ("Document was unloaded").
+     */
+    private static boolean isUnload(JavascriptException e) {
+        String message = e.getRawMessage();
+        return message != null && message.toLowerCase(Locale.ROOT).contains("unloaded");
+    }
+
+    /**
+     * Evaluates the WebDriver condition once, treating elements that went away as the condition not being met.
+     */
+    private <T> T confirm(Function<? super WebDriver, T> condition) {
+        try {
+            T value = condition.apply(driver);
+            return value == null || Boolean.FALSE.equals(value) ? null : value;
+        } catch (WebDriverException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Lets asynchronous scripts run a little longer than the wait, so the page reports the timeout
+     * rather than the driver. Only changed when a wait needs more than the current setting.
+     */
+    private void ensureScriptTimeout(Duration limit) {
+        Duration needed = limit.plus(SCRIPT_TIMEOUT_MARGIN);
+        if (needed.compareTo(scriptTimeout) > 0) {
+            Duration timeout = needed.compareTo(PageContext.DEFAULT_TIMEOUT) < 0
+                    ? PageContext.DEFAULT_TIMEOUT.plus(SCRIPT_TIMEOUT_MARGIN) : needed;
+            driver.manage().timeouts().scriptTimeout(timeout);
+            scriptTimeout = timeout;
+        }
+    }
+
+}
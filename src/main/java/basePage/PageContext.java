@@ -0,0 +1,166 @@
+package basePage;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.Sleeper;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.lang.reflect.InvocationTargetException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PageContext holds the page objects of one browser session. Page objects are created on first
+ * use and then reused, so pages can reach each other through the context instead of creating
+ * their own copies of every page they navigate through. All page objects of a session share
+ * the same waits, configured once per context with the same clock and timeout.
+ * <p>
+ * The default wait timeout is set with the {@code wait.timeoutSeconds} system property (15 seconds).
+ * A context is bound to the thread driving its session and is not thread-safe.
+ * </p>
+ */
+public final class PageContext {
+
+    /**
+     * How long waits wait by default.
+     */
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(Long.getLong("wait.timeoutSeconds", 15));
+
+    /**
+     * How often waits check their condition by default.
+     */
+    public static final Duration DEFAULT_POLLING = Duration.ofMillis(500);
+
+    private static final Map<WebDriver, PageContext> CONTEXTS = new ConcurrentHashMap<>();
+
+    private final WebDriver driver;
+    private final Clock clock;
+    private final Duration timeout;
+    private final Map<Class<? extends BasePage>, BasePage> pages = new HashMap<>();
+    private final Map<Duration, WebDriverWait> waits = new HashMap<>();
+    private AdaptiveWait adaptiveWait;
+    private ObservedWait observedWait;
+
+    private PageContext(WebDriver driver, Clock clock, Duration timeout) {
+        this.driver = driver;
+        this.clock = clock;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Retrieves the context of a browser session, creating it on first use.
+     *
+     * @param driver the driver of the session.
+     * @return the context of the session.
+     */
+    public static PageContext of(WebDriver driver) {
+        return CONTEXTS.computeIfAbsent(driver, key -> new PageContext(key, Clock.systemUTC(), DEFAULT_TIMEOUT));
+    }
+
+    /**
+     * Discards the context of a browser session, with all of its page objects.
+     * Called when the session is handed to another test.
+     *
+     * @param driver the driver of the session.
+     */
+    public static void release(WebDriver driver) {
+        CONTEXTS.remove(driver);
+    }
+
+    /**
+     * Retrieves the page object of the given type, creating it on first use.
+     *
+     * @param type the class of the page object, which must have a public constructor taking a WebDriver.
+     * @param <T>  the type of the page object.
+     * @return the page object of this session.
+     */
+    public <T extends BasePage> T page(Class<T> type) {
+        BasePage page = pages.get(type);
+        if (page == null) {
+            try {
+                page = type.getConstructor(WebDriver.class).newInstance(driver);
+            } catch (InvocationTargetException e) {
+                throw new IllegalStateException("Could not create " + type.getSimpleName(), e.getCause());
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(type.getSimpleName() + " has no public constructor taking a WebDriver", e);
+            }
+            pages.put(type, page);
+        }
+        return type.cast(page);
+    }
+
+    /**
+     * Retrieves the driver of this session.
+     *
+     * @return the driver.
+     */
+    public WebDriver getDriver() {
+        return driver;
+    }
+
+    /**
+     * Retrieves the clock the waits of this session measure time with.
+     *
+     * @return the clock.
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Retrieves the timeout of the waits of this session.
+     *
+     * @return the timeout.
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Retrieves the wait with the default timeout and polling interval.
+     *
+     * @return the shared wait.
+     */
+    public WebDriverWait getWait() {
+        return getWait(DEFAULT_POLLING);
+    }
+
+    /**
+     * Retrieves the wait with the default timeout and the given polling interval.
+     *
+     * @param polling how often the wait checks its condition.
+     * @return the shared wait.
+     */
+    public WebDriverWait getWait(Duration polling) {
+        return waits.computeIfAbsent(polling, key -> new WebDriverWait(driver, timeout, key, clock, Sleeper.SYSTEM_SLEEPER));
+    }
+
+    /**
+     * Retrieves the adaptive wait of this session, whose timeouts are learned from the {@link WaitHistory}
+     * and never exceed the timeout of this context.
+     *
+     * @return the shared adaptive wait.
+     */
+    public AdaptiveWait getAdaptiveWait() {
+        if (adaptiveWait == null) {
+            adaptiveWait = new AdaptiveWait(driver, clock, timeout, WaitHistory.getInstance());
+        }
+        return adaptiveWait;
+    }
+
+    /**
+     * Retrieves the observed wait of this session, which waits for element conditions with a
+     * MutationObserver in the page and polls with the {@link #getAdaptiveWait() adaptive wait} after a navigation.
+     *
+     * @return the shared observed wait.
+     */
+    public ObservedWait getObservedWait() {
+        if (observedWait == null) {
+            observedWait = new ObservedWait(driver, clock, getAdaptiveWait(), WaitHistory.getInstance());
+        }
+        return observedWait;
+    }
+
+}
@@ -0,0 +1,32 @@
+package basePage;
+
+import java.util.Locale;
+
+/**
+ * WaitBackend describes how the wait helpers of {@link BasePage} notice that their condition is met.
+ * The backend is selected with the {@code wait.backend} system property and defaults to {@link #POLLING}.
+ */
+public enum WaitBackend {
+
+    /**
+     * The condition is checked over WebDriver with the backoff of the {@link AdaptiveWait}.
+     */
+    POLLING,
+
+    /**
+     * The condition is checked in the page whenever the document changes, by a MutationObserver behind
+     * a single asynchronous script, see {@link ObservedWait}. Waits that span a navigation fall back to polling,
+     * and so do all waits in the user-contexts session mode, where the script would hold the shared browser's lock.
+     */
+    MUTATION_OBSERVER;
+
+    /**
+     * Retrieves the backend selected for the current run.
+     *
+     * @return the selected wait backend.
+     */
+    public static WaitBackend current() {
+        return valueOf(System.getProperty("wait.backend", "polling").trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+
+}
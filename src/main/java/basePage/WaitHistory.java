@@ -0,0 +1,164 @@
+package basePage;
+
+import driver.ExecutionProfile;
+import mirror.Mirror;
+import mirror.MirrorMode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * WaitHistory remembers how long each wait took to succeed, per wait and locator, across runs.
+ * The durations of the most recent successful waits are kept in a local file, and the p99 of the
+ * durations recorded by earlier runs is used to size the timeout of the same wait in this run.
+ * <p>
+ * Waits take different times against the live shop, a replayed mirror or a lean headless browser,
+ * so every environment has its own file: {@code .perf-history/wait-history-<host>-<profile>.tsv},
+ * where the host is {@code replay} for a {@link MirrorMode#REPLAY replayed} run. The file can be
+ * changed with the {@code wait.history.file} system property.
+ * </p>
+ */
+public final class WaitHistory {
+
+    /**
+     * How many of the most recent durations are kept per wait.
+     */
+    private static final int WINDOW = 200;
+
+    private static final Path FILE = Path.of(System.getProperty("wait.history.file",
+            ".perf-history/wait-history-" + environment() + ".tsv"));
+
+    private static final WaitHistory INSTANCE = load(FILE);
+
+    /**
+     * The durations recorded by earlier runs, in milliseconds, oldest first.
+     */
+    private final Map<String, long[]> previous;
+
+    /**
+     * The p99 of the durations recorded by earlier runs, in milliseconds.
+     */
+    private final Map<String, Long> previousP99 = new ConcurrentHashMap<>();
+
+    /**
+     * The durations recorded by this run, in milliseconds.
+     */
+    private final Map<String, Queue<Long>> recorded = new ConcurrentHashMap<>();
+
+    private WaitHistory(Map<String, long[]> previous) {
+        this.previous = previous;
+        previous.forEach((key, millis) -> previousP99.put(key, percentile(millis, 99)));
+    }
+
+    /**
+     * Retrieves the history of the current run.
+     *
+     * @return the wait history.
+     */
+    public static WaitHistory getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records how long a wait took to succeed.
+     *
+     * @param key      the wait and locator.
+     * @param duration how long the wait took.
+     */
+    public void record(String key, Duration duration) {
+        recorded.computeIfAbsent(key, k -> new ConcurrentLinkedQueue<>()).add(duration.toMillis());
+    }
+
+    /**
+     * Retrieves the p99 duration of a wait in earlier runs.
+     *
+     * @param key        the wait and locator.
+     * @param minSamples how many durations must have been recorded for the p99 to be meaningful.
+     * @return the p99 duration, or null if fewer durations were recorded.
+     */
+    public Duration previousP99(String key, int minSamples) {
+        long[] millis = previous.get(key);
+        if (millis == null || millis.length < minSamples) {
+            return null;
+        }
+        return Duration.ofMillis(previousP99.get(key));
+    }
+
+    /**
+     * Writes the most recent durations of every wait, from earlier runs and this run, back to the history file.
+     */
+    public synchronized void save() {
+        if (recorded.isEmpty()) {
+            return;
+        }
+        Map<String, List<Long>> merged = new TreeMap<>();
+        previous.forEach((key, millis) -> merged.put(key, new ArrayList<>(Arrays.stream(millis).boxed().toList())));
+        recorded.forEach((key, millis) -> merged.computeIfAbsent(key, k -> new ArrayList<>()).addAll(millis));
+        List<String> lines = new ArrayList<>();
+        merged.forEach((key, millis) -> {
+            List<Long> recent = millis.subList(Math.max(0, millis.size() - WINDOW), millis.size());
+            List<String> cells = new ArrayList<>();
+            recent.forEach(value -> cells.add(String.valueOf(value)));
+            lines.add(key + "\t" + String.join(",", cells));
+        });
+        try {
+            Path directory = FILE.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, "wait-history", ".tmp");
+            Files.write(temporary, lines, StandardCharsets.UTF_8);
+            Files.move(temporary, FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the wait history to " + FILE, e);
+        }
+    }
+
+    /**
+     * Names the environment the waits of this run are measured in: the host of the shop, or
+     * {@code replay}, and the execution profile.
+     */
+    private static String environment() {
+        String host = MirrorMode.current() == MirrorMode.REPLAY ? "replay" : URI.create(Mirror.baseUrl()).getHost();
+        return (host == null ? "local" : host) + "-" + ExecutionProfile.current().name().toLowerCase(Locale.ROOT);
+    }
+
+    private static WaitHistory load(Path file) {
+        Map<String, long[]> previous = new ConcurrentHashMap<>();
+        if (Files.isRegularFile(file)) {
+            try {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    int tab = line.lastIndexOf('\t');
+                    if (tab > 0 && tab < line.length() - 1) {
+                        previous.put(line.substring(0, tab),
+                                Arrays.stream(line.substring(tab + 1).split(",")).mapToLong(Long::parseLong).toArray());
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read the wait history from " + file, e);
+            }
+        }
+        return new WaitHistory(previous);
+    }
+
+    private static long percentile(long[] millis, int percentile) {
+        long[] sorted = millis.clone();
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+}
@@ -0,0 +1,112 @@
+package driver;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Properties;
+
+/**
+ * DriverBinaryCache remembers where WebDriverManager put the Chrome driver binary, so later runs
+ * can use it without asking WebDriverManager to resolve the version again, which needs the network.
+ * The entry is trusted for a while; once it expires, the binary is resolved again. If that fails,
+ * for example because there is no network, the expired binary is used as long as it still exists.
+ * <p>
+ * The cache is {@code .driver-cache/chromedriver.properties} by default, changed with the
+ * {@code driver.cache.file} system property. Entries expire after {@code driver.cache.ttlHours} (24).
+ * </p>
+ */
+final class DriverBinaryCache {
+
+    /**
+     * The system property Selenium reads the Chrome driver binary from.
+     */
+    private static final String DRIVER_PROPERTY = "webdriver.chrome.driver";
+
+    private static final Path FILE = Path.of(System.getProperty("driver.cache.file", ".driver-cache/chromedriver.properties"));
+
+    private static final Duration TTL = Duration.ofHours(Long.getLong("driver.cache.ttlHours", 24));
+
+    private DriverBinaryCache() {
+    }
+
+    /**
+     * Points Selenium at the Chrome driver binary, from the cache if its entry is fresh, otherwise
+     * through WebDriverManager, whose result is cached for the next runs.
+     */
+    static void resolve() {
+        if (System.getProperty(DRIVER_PROPERTY) != null) {
+            return;
+        }
+        Properties cached = read();
+        Path binary = cached == null ? null : Path.of(cached.getProperty("path", ""));
+        boolean usable = binary != null && Files.isExecutable(binary);
+        if (usable && !isExpired(cached)) {
+            System.setProperty(DRIVER_PROPERTY, binary.toString());
+            return;
+        }
+        try {
+            WebDriverManager manager = WebDriverManager.chromedriver();
+            manager.setup();
+            write(manager.getDownloadedDriverPath(), manager.getDownloadedDriverVersion());
+        } catch (RuntimeException e) {
+            if (!usable) {
+                throw e;
+            }
+            System.out.println("Could not resolve the Chrome driver (" + e.getMessage() + "), using the cached "
+                    + cached.getProperty("version") + " at " + binary);
+            System.setProperty(DRIVER_PROPERTY, binary.toString());
+        }
+    }
+
+    private static boolean isExpired(Properties cached) {
+        try {
+            return Instant.parse(cached.getProperty("resolvedAt")).plus(TTL).isBefore(Instant.now());
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+
+    private static Properties read() {
+        if (!Files.isRegularFile(FILE)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(FILE, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+            return properties;
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void write(String path, String version) {
+        if (path == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty("path", Path.of(path).toAbsolutePath().toString());
+        properties.setProperty("version", String.valueOf(version));
+        properties.setProperty("resolvedAt", Instant.now().toString());
+        try {
+            Path directory = FILE.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, "chromedriver", ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                properties.store(writer, "Chrome driver resolved by WebDriverManager");
+            }
+            Files.move(temporary, FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the driver cache " + FILE, e);
+        }
+    }
+
+}
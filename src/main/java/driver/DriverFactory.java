@@ -0,0 +1,109 @@
+package driver;
+
+import metrics.CommandLatencyListener;
+import metrics.LatencyRecorder;
+import metrics.LocatorProfiler;
+import mirror.Mirror;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DriverFactory starts new browser sessions. It resolves the Chrome driver binary
+ * once per JVM, from a local cache when possible, and creates Chrome instances configured
+ * for the selected {@link ExecutionProfile}.
+ */
+public final class DriverFactory {
+
+    /**
+     * The fixed window size used by the lean profile.
+     */
+    private static final String LEAN_WINDOW_SIZE = "1366,768";
+
+    /**
+     * Whether the Chrome driver binary has already been resolved in this JVM.
+     */
+    private static boolean binaryResolved;
+
+    private DriverFactory() {
+    }
+
+    /**
+     * Resolves the Chrome driver binary, if it was not resolved yet. The binary found by
+     * WebDriverManager is kept in the {@link DriverBinaryCache}, so later runs skip the lookup.
+     */
+    public static synchronized void resolveDriverBinary() {
+        if (!binaryResolved) {
+            DriverBinaryCache.resolve();
+            binaryResolved = true;
+        }
+    }
+
+    /**
+     * Starts a new Chrome session for the execution profile selected for the current run.
+     *
+     * @return the WebDriver instance of the new session.
+     */
+    public static WebDriver createDriver() {
+        return createDriver(ExecutionProfile.current());
+    }
+
+    /**
+     * Starts a new Chrome session for the given execution profile. When metrics are enabled,
+     * the driver is decorated so the latency of every WebDriver command is recorded, and when
+     * locators are profiled, so every element lookup is timed by the {@link LocatorProfiler}. While the
+     * {@link Mirror} records, the HTTP traffic of the session is added to the recording.
+     *
+     * @param profile the execution profile of the session.
+     * @return the WebDriver instance of the new session.
+     */
+    public static WebDriver createDriver(ExecutionProfile profile) {
+        return createDriver(profile, false);
+    }
+
+    /**
+     * Starts a new Chrome session for the given execution profile with WebDriver BiDi enabled,
+     * so the session can host several {@link UserContexts user contexts}.
+     *
+     * @param profile the execution profile of the session.
+     * @return the WebDriver instance of the new session.
+     */
+    public static WebDriver createBiDiDriver(ExecutionProfile profile) {
+        return createDriver(profile, true);
+    }
+
+    private static WebDriver createDriver(ExecutionProfile profile, boolean bidi) {
+        resolveDriverBinary();
+        ChromeOptions options = new ChromeOptions();
+        if (profile == ExecutionProfile.LEAN) {
+            options.addArguments("--headless=new", "--window-size=" + LEAN_WINDOW_SIZE);
+        }
+        if (bidi) {
+            options.setCapability("webSocketUrl", true);
+        }
+        WebDriver driver = new ChromeDriver(options);
+        List<WebDriverListener> listeners = new ArrayList<>();
+        if (LatencyRecorder.isEnabled()) {
+            listeners.add(new CommandLatencyListener());
+        }
+        if (LocatorProfiler.isEnabled()) {
+            listeners.add(new LocatorProfiler());
+        }
+        if (!listeners.isEmpty()) {
+            driver = new EventFiringDecorator<>(listeners.toArray(WebDriverListener[]::new)).decorate(driver);
+        }
+        Mirror.attach(driver);
+        if (profile == ExecutionProfile.LEAN) {
+            ResourceBlocker.attach(driver);
+        } else {
+            driver.manage().window().maximize();
+        }
+        return driver;
+    }
+
+}
@@ -0,0 +1,74 @@
+package driver;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * DriverManager holds one WebDriver instance per thread. It allows TestNG to run
+ * test methods and DataProvider rows in parallel without tests sharing a browser,
+ * since every worker thread only ever sees the driver it created itself.
+ */
+public final class DriverManager {
+
+    /**
+     * The WebDriver instance bound to the current thread.
+     */
+    private static final ThreadLocal<WebDriver> DRIVER = new ThreadLocal<>();
+
+    private DriverManager() {
+    }
+
+    /**
+     * Retrieves the WebDriver instance bound to the current thread.
+     *
+     * @return the WebDriver of the current thread.
+     * @throws IllegalStateException if no driver was bound to the current thread.
+     */
+    public static WebDriver getDriver() {
+        WebDriver driver = DRIVER.get();
+        if (driver == null) {
+            throw new IllegalStateException("No WebDriver is bound to thread " + Thread.currentThread().getName());
+        }
+        return driver;
+    }
+
+    /**
+     * Binds the given WebDriver instance to the current thread.
+     *
+     * @param driver the WebDriver instance to bind.
+     */
+    public static void setDriver(WebDriver driver) {
+        DRIVER.set(driver);
+    }
+
+    /**
+     * Checks whether a WebDriver instance is bound to the current thread.
+     *
+     * @return true if the current thread has a driver, false otherwise.
+     */
+    public static boolean hasDriver() {
+        return DRIVER.get() != null;
+    }
+
+    /**
+     * Removes the WebDriver instance from the current thread without quitting it.
+     *
+     * @return the driver that was bound to the current thread, or null if there was none.
+     */
+    public static WebDriver removeDriver() {
+        WebDriver driver = DRIVER.get();
+        DRIVER.remove();
+        return driver;
+    }
+
+    /**
+     * Quits the WebDriver instance bound to the current thread, if any,
+     * and removes it from the thread.
+     */
+    public static void quitDriver() {
+        WebDriver driver = removeDriver();
+        if (driver != null) {
+            driver.quit();
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+package driver;
+
+import java.util.Locale;
+
+/**
+ * ExecutionProfile describes how browser sessions are started. The profile is selected
+ * with the {@code execution.profile} system property and defaults to {@link #DEFAULT}.
+ */
+public enum ExecutionProfile {
+
+    /**
+     * A maximized, headed Chrome that loads every resource of the page.
+     */
+    DEFAULT,
+
+    /**
+     * A headless Chrome with a fixed viewport that blocks images, fonts, media
+     * and analytics scripts, for tests that only need the DOM.
+     */
+    LEAN;
+
+    /**
+     * Retrieves the profile selected for the current run.
+     *
+     * @return the selected execution profile.
+     */
+    public static ExecutionProfile current() {
+        return valueOf(System.getProperty("execution.profile", "default").trim().toUpperCase(Locale.ROOT));
+    }
+
+}
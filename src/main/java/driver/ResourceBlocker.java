@@ -0,0 +1,123 @@
+package driver;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.json.Json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ResourceBlocker fails requests for images, fonts, media and analytics scripts through
+ * DevTools network interception, so pages only load what the DOM assertions need.
+ * It also counts the blocked requests and the bytes that were still transferred, so the
+ * savings of the lean profile can be reported per test.
+ */
+public final class ResourceBlocker {
+
+    /**
+     * DevTools resource types that are never loaded.
+     */
+    private static final List<String> BLOCKED_RESOURCE_TYPES = List.of("Image", "Font", "Media");
+
+    /**
+     * URL patterns of third-party scripts that are never loaded.
+     */
+    private static final List<String> BLOCKED_URL_PATTERNS = List.of(
+            "*google-analytics.com*",
+            "*googletagmanager.com*",
+            "*doubleclick.net*",
+            "*hotjar.com*",
+            "*clarity.ms*");
+
+    private static final Map<WebDriver, ResourceBlocker> BLOCKERS = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> blockedRequests = new ConcurrentHashMap<>();
+    private final LongAdder transferredRequests = new LongAdder();
+    private final LongAdder transferredBytes = new LongAdder();
+
+    private ResourceBlocker() {
+    }
+
+    /**
+     * Starts blocking resources in the given browser session.
+     *
+     * @param driver the driver of the session, which must support DevTools.
+     */
+    public static void attach(WebDriver driver) {
+        ResourceBlocker blocker = new ResourceBlocker();
+        DevTools devTools = ((HasDevTools) driver).getDevTools();
+        devTools.createSessionIfThereIsNotOne();
+
+        devTools.send(new Command<>("Network.enable", Map.of()));
+        devTools.addListener(event("Network.loadingFinished"), finished -> {
+            blocker.transferredRequests.increment();
+            blocker.transferredBytes.add(((Number) finished.get("encodedDataLength")).longValue());
+        });
+
+        List<Map<String, Object>> patterns = new ArrayList<>();
+        for (String resourceType : BLOCKED_RESOURCE_TYPES) {
+            patterns.add(Map.of("urlPattern", "*", "resourceType", resourceType, "requestStage", "Request"));
+        }
+        for (String urlPattern : BLOCKED_URL_PATTERNS) {
+            patterns.add(Map.of("urlPattern", urlPattern, "requestStage", "Request"));
+        }
+        devTools.addListener(event("Fetch.requestPaused"), paused -> {
+            String resourceType = String.valueOf(paused.get("resourceType"));
+            String category = BLOCKED_RESOURCE_TYPES.contains(resourceType) ? resourceType : "Third-party script";
+            blocker.blockedRequests.computeIfAbsent(category, key -> new LongAdder()).increment();
+            devTools.send(new Command<>("Fetch.failRequest",
+                    Map.of("requestId", paused.get("requestId"), "errorReason", "BlockedByClient")));
+        });
+        devTools.send(new Command<>("Fetch.enable", Map.of("patterns", patterns)));
+
+        BLOCKERS.put(driver, blocker);
+    }
+
+    /**
+     * Stops tracking the given browser session.
+     *
+     * @param driver the driver of the session.
+     */
+    public static void detach(WebDriver driver) {
+        BLOCKERS.remove(driver);
+    }
+
+    /**
+     * Retrieves the blocker attached to the given browser session.
+     *
+     * @param driver the driver of the session.
+     * @return the blocker, or an empty Optional if the session does not block resources.
+     */
+    public static Optional<ResourceBlocker> of(WebDriver driver) {
+        return Optional.ofNullable(BLOCKERS.get(driver));
+    }
+
+    /**
+     * Describes what was blocked and transferred since the previous call, and starts counting again.
+     *
+     * @return the description of the blocked and transferred requests.
+     */
+    public String drainReport() {
+        Map<String, Long> blocked = new TreeMap<>();
+        blockedRequests.forEach((category, count) -> blocked.put(category, count.sumThenReset()));
+        long blockedTotal = blocked.values().stream().mapToLong(Long::longValue).sum();
+        long requests = transferredRequests.sumThenReset();
+        long bytes = transferredBytes.sumThenReset();
+        return "blocked " + blockedTotal + " requests " + blocked
+                + ", transferred " + (bytes / 1024) + " KB in " + requests + " requests";
+    }
+
+    private static Event<Map<String, Object>> event(String name) {
+        return new Event<>(name, input -> input.read(Json.MAP_TYPE));
+    }
+
+}
@@ -0,0 +1,31 @@
+package driver;
+
+import java.util.Locale;
+
+/**
+ * SessionMode decides what a test leases as its browser session. The mode is selected with the
+ * {@code session.mode} system property and defaults to {@link #POOL}.
+ */
+public enum SessionMode {
+
+    /**
+     * Every test leases a whole browser from the {@link SessionPool}.
+     */
+    POOL,
+
+    /**
+     * Every test gets its own BiDi user context, with separate cookies and storage, in a browser
+     * shared through {@link UserContexts}.
+     */
+    USER_CONTEXTS;
+
+    /**
+     * Retrieves the mode selected for the current run.
+     *
+     * @return the selected session mode.
+     */
+    public static SessionMode current() {
+        return valueOf(System.getProperty("session.mode", "pool").trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+
+}
@@ -0,0 +1,344 @@
+package driver;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chromium.HasCdp;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SessionPool keeps a bounded number of pre-started browser sessions that tests lease
+ * instead of starting a new browser every time. Returned sessions are reset (cookies,
+ * storage and extra tabs) and kept warm for the next lease, and the pool refills itself
+ * in the background whenever a session is retired.
+ * <p>
+ * The pool is configured through system properties:
+ * <ul>
+ *     <li>{@code pool.size} - the maximum number of open sessions (default 2).</li>
+ *     <li>{@code pool.maxIdleSeconds} - how long a session may stay idle before it is retired (default 300).</li>
+ *     <li>{@code pool.maxLeases} - how many times a session is leased before it is retired (default 20).</li>
+ *     <li>{@code pool.leaseTimeoutSeconds} - how long a lease waits for a free session (default 120).</li>
+ * </ul>
+ * </p>
+ */
+public final class SessionPool {
+
+    private static final SessionPool INSTANCE = new SessionPool(
+            Integer.getInteger("pool.size", 2),
+            Duration.ofSeconds(Long.getLong("pool.maxIdleSeconds", 300)),
+            Integer.getInteger("pool.maxLeases", 20),
+            Duration.ofSeconds(Long.getLong("pool.leaseTimeoutSeconds", 120)));
+
+    private final int size;
+    private final Duration maxIdle;
+    private final int maxLeases;
+    private final Duration leaseTimeout;
+
+    /**
+     * Idle sessions, most recently returned first.
+     */
+    private final BlockingDeque<PooledSession> idle = new LinkedBlockingDeque<>();
+
+    /**
+     * Sessions currently leased, keyed by their driver.
+     */
+    private final Map<WebDriver, PooledSession> leased = new ConcurrentHashMap<>();
+
+    /**
+     * Number of open sessions, including the ones being started.
+     */
+    private final AtomicInteger open = new AtomicInteger();
+
+    private final ExecutorService refiller = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-pool-refill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AcquisitionStats warmAcquisitions = new AcquisitionStats();
+    private final AcquisitionStats coldAcquisitions = new AcquisitionStats();
+    private final LongAdder retiredSessions = new LongAdder();
+
+    private volatile boolean closed;
+
+    private SessionPool(int size, Duration maxIdle, int maxLeases, Duration leaseTimeout) {
+        this.size = Math.max(1, size);
+        this.maxIdle = maxIdle;
+        this.maxLeases = Math.max(1, maxLeases);
+        this.leaseTimeout = leaseTimeout;
+    }
+
+    /**
+     * Retrieves the pool shared by the whole test run.
+     *
+     * @return the session pool.
+     */
+    public static SessionPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts filling the pool up to its size in the background.
+     */
+    public void prewarm() {
+        refill();
+    }
+
+    /**
+     * Leases a browser session. An idle session is returned if there is one; otherwise
+     * a new session is started if the pool is not full, or the call waits until
+     * a session is returned.
+     *
+     * @return the WebDriver of the leased session.
+     */
+    public WebDriver lease() {
+        long start = System.nanoTime();
+        PooledSession session = pollIdle();
+        AcquisitionStats stats = warmAcquisitions;
+        if (session == null && tryReserve()) {
+            session = start();
+            stats = coldAcquisitions;
+        }
+        if (session == null) {
+            session = awaitIdle();
+        }
+        if (session == null) {
+            session = start();
+            stats = coldAcquisitions;
+        }
+        stats.record(System.nanoTime() - start);
+        leased.put(session.driver, session);
+        return session.driver;
+    }
+
+    /**
+     * Returns a leased session to the pool. The session is reset so the next test starts
+     * with a clean browser, or retired if it reached its lease limit or can no longer be used.
+     *
+     * @param driver the WebDriver of the leased session.
+     */
+    public void release(WebDriver driver) {
+        PooledSession session = leased.remove(driver);
+        if (session == null) {
+            ResourceBlocker.detach(driver);
+            driver.quit();
+            return;
+        }
+        session.leaseCount++;
+        if (closed || session.leaseCount >= maxLeases || !reset(session.driver)) {
+            retire(session);
+            return;
+        }
+        session.idleSince = System.nanoTime();
+        idle.offerFirst(session);
+    }
+
+    /**
+     * Quits every session of the pool and prints the acquisition report.
+     */
+    public void shutdown() {
+        closed = true;
+        refiller.shutdownNow();
+        List<PooledSession> sessions = new ArrayList<>(leased.values());
+        idle.drainTo(sessions);
+        leased.clear();
+        for (PooledSession session : sessions) {
+            quit(session);
+        }
+        System.out.println(report());
+    }
+
+    /**
+     * Builds a summary of how fast sessions were acquired from the pool.
+     *
+     * @return the acquisition report.
+     */
+    public String report() {
+        return "Session pool (size " + size + "): "
+                + warmAcquisitions.describe("warm") + ", "
+                + coldAcquisitions.describe("cold") + ", "
+                + retiredSessions.sum() + " sessions retired";
+    }
+
+    private PooledSession pollIdle() {
+        PooledSession session;
+        while ((session = idle.pollFirst()) != null) {
+            if (!session.isIdleLongerThan(maxIdle)) {
+                return session;
+            }
+            retire(session);
+        }
+        return null;
+    }
+
+    /**
+     * Waits for a session to be returned, or for a session to be retired so a new one can be started.
+     *
+     * @return the idle session, or null if a slot was reserved and the caller has to start a new session.
+     */
+    private PooledSession awaitIdle() {
+        long deadline = System.nanoTime() + leaseTimeout.toNanos();
+        try {
+            while (!closed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                PooledSession session = idle.pollFirst(remaining, TimeUnit.NANOSECONDS);
+                if (session != null && !session.isIdleLongerThan(maxIdle)) {
+                    return session;
+                }
+                if (session != null) {
+                    retire(session);
+                }
+                if (tryReserve()) {
+                    return null;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new IllegalStateException("No browser session became available within " + leaseTimeout);
+    }
+
+    private boolean tryReserve() {
+        return !closed && open.getAndUpdate(count -> count < size ? count + 1 : count) < size;
+    }
+
+    private PooledSession start() {
+        try {
+            return new PooledSession(DriverFactory.createDriver());
+        } catch (RuntimeException e) {
+            open.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void refill() {
+        if (closed) {
+            return;
+        }
+        refiller.execute(() -> {
+            while (tryReserve()) {
+                try {
+                    PooledSession session = start();
+                    session.idleSince = System.nanoTime();
+                    idle.offerLast(session);
+                    if (closed && idle.remove(session)) {
+                        // The pool was shut down while the browser started, after its idle sessions were quit.
+                        quit(session);
+                        return;
+                    }
+                } catch (WebDriverException e) {
+                    System.out.println("Session pool could not start a browser: " + e.getMessage());
+                    return;
+                }
+            }
+        });
+    }
+
+    private void retire(PooledSession session) {
+        retiredSessions.increment();
+        quit(session);
+        refill();
+    }
+
+    private void quit(PooledSession session) {
+        ResourceBlocker.detach(session.driver);
+        try {
+            session.driver.quit();
+        } catch (WebDriverException e) {
+            System.out.println("Session pool could not quit a browser: " + e.getMessage());
+        } finally {
+            open.decrementAndGet();
+        }
+    }
+
+    /**
+     * Clears cookies and web storage, closes every tab but one and leaves the session on a blank page.
+     *
+     * @param driver the driver of the session to reset.
+     * @return true if the session was reset, false if it is no longer usable.
+     */
+    private boolean reset(WebDriver driver) {
+        try {
+            List<String> handles = new ArrayList<>(driver.getWindowHandles());
+            for (int i = 1; i < handles.size(); i++) {
+                driver.switchTo().window(handles.get(i)).close();
+            }
+            driver.switchTo().window(handles.get(0));
+            ((JavascriptExecutor) driver).executeScript(
+                    "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}");
+            if (driver instanceof HasCdp) {
+                ((HasCdp) driver).executeCdpCommand("Network.clearBrowserCookies", Map.of());
+            } else {
+                driver.manage().deleteAllCookies();
+            }
+            driver.get("about:blank");
+            return true;
+        } catch (WebDriverException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A browser session owned by the pool.
+     */
+    private static final class PooledSession {
+
+        private final WebDriver driver;
+        private int leaseCount;
+        private long idleSince;
+
+        private PooledSession(WebDriver driver) {
+            this.driver = driver;
+            this.idleSince = System.nanoTime();
+        }
+
+        private boolean isIdleLongerThan(Duration maxIdle) {
+            return System.nanoTime() - idleSince > maxIdle.toNanos();
+        }
+
+    }
+
+    /**
+     * Counts acquisitions of one kind and the time they took.
+     */
+    private static final class AcquisitionStats {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private String describe(String kind) {
+            long acquisitions = count.sum();
+            if (acquisitions == 0) {
+                return "0 " + kind;
+            }
+            return acquisitions + " " + kind
+                    + " (avg " + TimeUnit.NANOSECONDS.toMillis(totalNanos.sum() / acquisitions) + " ms"
+                    + ", max " + TimeUnit.NANOSECONDS.toMillis(maxNanos.get()) + " ms)";
+        }
+
+    }
+
+}
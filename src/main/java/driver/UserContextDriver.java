@@ -0,0 +1,132 @@
+package driver;
+
+import org.openqa.selenium.Alert;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.interactions.Locatable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * UserContextDriver is the handler behind a {@link UserContexts} handle, and behind the elements,
+ * navigation, options and target locators obtained from it. Every call is run on the shared
+ * browser after switching to the handle's window, and every WebDriver object it returns is
+ * wrapped the same way, so elements found through a handle keep acting on its window.
+ */
+final class UserContextDriver implements InvocationHandler {
+
+    private final UserContexts contexts;
+    private final String window;
+    private final Object target;
+
+    /**
+     * The handle the wrapped object was obtained from, or null if the wrapped object is the browser itself.
+     */
+    private final WebDriver handle;
+
+    /**
+     * Creates a handler.
+     *
+     * @param contexts the user contexts of the shared browser.
+     * @param window   the window of the handle.
+     * @param target   the object calls are forwarded to.
+     * @param handle   the handle the target was obtained from, or null for the handle itself.
+     */
+    UserContextDriver(UserContexts contexts, String window, Object target, WebDriver handle) {
+        this.contexts = contexts;
+        this.window = window;
+        this.target = target;
+        this.handle = handle;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        WebDriver self = handle != null ? handle : (WebDriver) proxy;
+        switch (method.getName()) {
+            case "equals":
+                if (method.getParameterCount() == 1) {
+                    return proxy == args[0];
+                }
+                break;
+            case "hashCode":
+                if (method.getParameterCount() == 0) {
+                    return System.identityHashCode(proxy);
+                }
+                break;
+            case "toString":
+                if (method.getParameterCount() == 0) {
+                    return handle == null ? "UserContextDriver(" + window + ")" : String.valueOf(target);
+                }
+                break;
+            case "getWrappedDriver":
+            case "getWrappedElement":
+                return target;
+            default:
+                break;
+        }
+        if (handle == null) {
+            switch (method.getName()) {
+                case "get":
+                    contexts.navigate(window, (String) args[0]);
+                    return null;
+                case "getWindowHandle":
+                    return window;
+                case "getWindowHandles":
+                    return Set.of(window);
+                case "close":
+                case "quit":
+                    contexts.release(self);
+                    return null;
+                default:
+                    break;
+            }
+        }
+        Object result = contexts.call(window, () -> {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        });
+        return wrap(result, method.getReturnType(), self);
+    }
+
+    private Object wrap(Object result, Class<?> type, WebDriver self) {
+        if (result == null) {
+            return null;
+        }
+        if (result instanceof WebDriver) {
+            return self;
+        }
+        if (result instanceof WebElement element) {
+            return element instanceof Locatable
+                    ? proxy(element, self, WebElement.class, WrapsElement.class, Locatable.class)
+                    : proxy(element, self, WebElement.class, WrapsElement.class);
+        }
+        if (result instanceof List<?> list && list.stream().anyMatch(WebElement.class::isInstance)) {
+            List<Object> wrapped = new ArrayList<>(list.size());
+            list.forEach(item -> wrapped.add(wrap(item, Object.class, self)));
+            return wrapped;
+        }
+        if (type.isInterface() && (type.getEnclosingClass() == WebDriver.class || type == Alert.class)) {
+            return proxy(result, self, type);
+        }
+        return result;
+    }
+
+    private Object proxy(Object result, WebDriver self, Class<?>... interfaces) {
+        return Proxy.newProxyInstance(UserContextDriver.class.getClassLoader(), interfaces,
+                new UserContextDriver(contexts, window, result, self));
+    }
+
+}
@@ -0,0 +1,237 @@
+package driver;
+
+import org.openqa.selenium.HasCapabilities;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WrapsDriver;
+import org.openqa.selenium.bidi.BiDi;
+import org.openqa.selenium.bidi.Command;
+import org.openqa.selenium.bidi.HasBiDi;
+import org.openqa.selenium.json.Json;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * UserContexts runs many isolated sessions in a single Chrome. Every session is a WebDriver BiDi
+ * user context, with its own cookies, storage and cache like an incognito profile, and a window
+ * of its own. Tests drive it through a WebDriver handle that behaves like a separate browser,
+ * so page objects work with it unchanged, at a fraction of the memory of one Chrome per thread.
+ * <p>
+ * The classic WebDriver commands of one browser all act on its current window, so the handles
+ * take turns: each command takes a shared lock and switches to its handle's window first.
+ * Page loads, the slow part of most tests, go through BiDi instead, which addresses the window
+ * directly, so they run in parallel. Waits only hold the lock while they check their condition.
+ * </p>
+ * Configured with system properties:
+ * <ul>
+ *     <li>{@code userContexts.max}: how many user contexts may be open at once (16).</li>
+ *     <li>{@code pool.leaseTimeoutSeconds}: how long opening a context waits for a free one (120).</li>
+ * </ul>
+ * The lean profile's {@link ResourceBlocker} and the {@code mirror} recorder listen to the first window
+ * of the browser only; blocking and recording need the pooled sessions of {@link SessionPool}.
+ */
+public final class UserContexts {
+
+    private static UserContexts instance;
+
+    private final WebDriver browser;
+    private final BiDi bidi;
+    private final int max;
+    private final Duration openTimeout;
+    private final Semaphore slots;
+
+    /**
+     * Serializes the classic commands of all handles, which share the browser's current window.
+     */
+    private final ReentrantLock lock = new ReentrantLock(true);
+
+    /**
+     * The window the browser's classic commands currently act on. Guarded by {@link #lock}.
+     */
+    private String currentWindow;
+
+    /**
+     * The user context of every open handle.
+     */
+    private final Map<WebDriver, String> userContexts = new ConcurrentHashMap<>();
+
+    private final LongAdder opened = new LongAdder();
+    private final AtomicInteger peak = new AtomicInteger();
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder lockWaitNanos = new LongAdder();
+
+    private UserContexts(WebDriver browser, int max, Duration openTimeout) {
+        if (!(browser instanceof HasBiDi)) {
+            throw new IllegalStateException("User contexts need a browser with WebDriver BiDi enabled");
+        }
+        this.browser = browser;
+        this.bidi = ((HasBiDi) browser).getBiDi();
+        this.max = Math.max(1, max);
+        this.openTimeout = openTimeout;
+        this.slots = new Semaphore(this.max, true);
+    }
+
+    /**
+     * Retrieves the shared browser of the run, starting it on first use.
+     *
+     * @return the user contexts of the shared browser.
+     */
+    public static synchronized UserContexts getInstance() {
+        if (instance == null) {
+            instance = new UserContexts(DriverFactory.createBiDiDriver(ExecutionProfile.current()),
+                    Integer.getInteger("userContexts.max", 16),
+                    Duration.ofSeconds(Long.getLong("pool.leaseTimeoutSeconds", 120)));
+        }
+        return instance;
+    }
+
+    /**
+     * Opens a new user context with a window of its own. Waits while the maximum number of contexts is open.
+     *
+     * @return the WebDriver handle driving the new context.
+     */
+    public WebDriver open() {
+        try {
+            if (!slots.tryAcquire(openTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new IllegalStateException("No user context became available within " + openTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a user context", e);
+        }
+        String userContext = null;
+        try {
+            userContext = (String) bidi.send(new Command<>("browser.createUserContext", Map.of(),
+                    input -> input.read(Json.MAP_TYPE))).get("userContext");
+            String window = (String) bidi.send(new Command<>("browsingContext.create",
+                    Map.of("type", "window", "userContext", userContext),
+                    input -> input.read(Json.MAP_TYPE))).get("context");
+            WebDriver handle = (WebDriver) Proxy.newProxyInstance(UserContexts.class.getClassLoader(),
+                    driverInterfaces(), new UserContextDriver(this, window, browser, null));
+            userContexts.put(handle, userContext);
+            opened.increment();
+            peak.accumulateAndGet(userContexts.size(), Math::max);
+            return handle;
+        } catch (RuntimeException e) {
+            if (userContext != null) {
+                removeUserContext(userContext);
+            }
+            slots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes a user context with all of its windows, cookies and storage.
+     *
+     * @param handle the handle returned by {@link #open()}.
+     */
+    public void release(WebDriver handle) {
+        String userContext = userContexts.remove(handle);
+        if (userContext == null) {
+            return;
+        }
+        try {
+            removeUserContext(userContext);
+        } finally {
+            slots.release();
+        }
+    }
+
+    /**
+     * Removes a user context from the browser, closing its windows and dropping its cookies and storage.
+     *
+     * @param userContext the id of the user context.
+     */
+    private void removeUserContext(String userContext) {
+        try {
+            bidi.send(new Command<>("browser.removeUserContext", Map.of("userContext", userContext)));
+        } catch (WebDriverException e) {
+            System.out.println("Could not remove user context " + userContext + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes every user context, quits the shared browser and prints how the contexts were used.
+     */
+    public static void shutdown() {
+        UserContexts contexts;
+        synchronized (UserContexts.class) {
+            contexts = instance;
+            instance = null;
+        }
+        if (contexts == null) {
+            return;
+        }
+        for (WebDriver handle : new ArrayList<>(contexts.userContexts.keySet())) {
+            contexts.release(handle);
+        }
+        ResourceBlocker.detach(contexts.browser);
+        contexts.browser.quit();
+        System.out.println(contexts.report());
+    }
+
+    /**
+     * Builds a summary of how the user contexts of the browser were used.
+     *
+     * @return the usage report.
+     */
+    public String report() {
+        long count = commands.sum();
+        return "User contexts (max " + max + "): " + opened.sum() + " opened, " + peak.get() + " open at once, "
+                + count + " classic commands, average lock wait "
+                + (count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(lockWaitNanos.sum() / count)) + " µs";
+    }
+
+    /**
+     * Loads a URL in a window through BiDi and waits until the document is complete.
+     * Does not take the lock, so several windows load at the same time.
+     */
+    void navigate(String window, String url) {
+        bidi.send(new Command<>("browsingContext.navigate", Map.of("context", window, "url", url, "wait", "complete")));
+    }
+
+    /**
+     * Runs a classic command on the browser's current window, after switching to the given window.
+     */
+    <T> T call(String window, Callable<T> command) throws Exception {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            lockWaitNanos.add(System.nanoTime() - start);
+            commands.increment();
+            if (!window.equals(currentWindow)) {
+                currentWindow = null;
+                browser.switchTo().window(window);
+                currentWindow = window;
+            }
+            return command.call();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Class<?>[] driverInterfaces() {
+        List<Class<?>> interfaces = new ArrayList<>(List.of(WebDriver.class, WrapsDriver.class));
+        for (Class<?> type : List.of(JavascriptExecutor.class, TakesScreenshot.class, HasCapabilities.class)) {
+            if (type.isInstance(browser)) {
+                interfaces.add(type);
+            }
+        }
+        return interfaces.toArray(new Class<?>[0]);
+    }
+
+}
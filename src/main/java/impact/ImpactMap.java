@@ -0,0 +1,129 @@
+package impact;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * ImpactMap maps every test to the page object methods and locator fields it used the last time it was
+ * traced with {@link ImpactTrace}, and decides which tests a set of {@link SourceChanges} affects.
+ * <p>
+ * The map is kept in {@code .perf-history/test-impact.tsv}, changed with the {@code impact.map} system
+ * property, one line per test and member. A traced run replaces the entries of the tests it ran and keeps
+ * the others, so the nightly full run keeps the whole map up to date.
+ * </p>
+ */
+public final class ImpactMap {
+
+    private static final Path FILE = Path.of(System.getProperty("impact.map", ".perf-history/test-impact.tsv"));
+
+    private final Map<String, Set<String>> membersByTest;
+
+    private ImpactMap(Map<String, Set<String>> membersByTest) {
+        this.membersByTest = membersByTest;
+    }
+
+    /**
+     * Reads the map written by earlier traced runs.
+     *
+     * @return the map, empty if no run was traced yet.
+     */
+    public static ImpactMap load() {
+        Map<String, Set<String>> membersByTest = new TreeMap<>();
+        if (Files.isRegularFile(FILE)) {
+            try {
+                for (String line : Files.readAllLines(FILE, StandardCharsets.UTF_8)) {
+                    int tab = line.indexOf('\t');
+                    if (tab > 0) {
+                        membersByTest.computeIfAbsent(line.substring(0, tab), key -> new TreeSet<>())
+                                .add(line.substring(tab + 1).trim());
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read the impact map " + FILE, e);
+            }
+        }
+        return new ImpactMap(membersByTest);
+    }
+
+    /**
+     * Replaces the members a test uses.
+     *
+     * @param test    the test, as {@code fully.qualified.Class.method}.
+     * @param members the members it used, as {@code PageClass.member}.
+     */
+    public void put(String test, Set<String> members) {
+        membersByTest.put(test, new TreeSet<>(members));
+    }
+
+    /**
+     * Writes the map.
+     *
+     * @return the written file.
+     */
+    public Path save() {
+        List<String> lines = new ArrayList<>();
+        membersByTest.forEach((test, members) -> members.forEach(member -> lines.add(test + "\t" + member)));
+        try {
+            Files.createDirectories(FILE.toAbsolutePath().getParent());
+            Files.write(FILE, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the impact map " + FILE, e);
+        }
+        return FILE;
+    }
+
+    /**
+     * Tells whether the map knows a test. Tests it does not know, such as new ones, should always run.
+     *
+     * @param test the test, as {@code fully.qualified.Class.method}.
+     * @return true if the test was traced before.
+     */
+    public boolean knows(String test) {
+        return membersByTest.containsKey(test);
+    }
+
+    /**
+     * Lists the tests a set of changes affects among the ones the map knows. A test is affected when its
+     * class changed, when it used a changed member, or when it used a page object that changed as a whole.
+     * A changed member no test is known to use, such as a method without any browser action, counts as a
+     * change of its whole page object.
+     *
+     * @param changes the changes.
+     * @return the affected tests, as {@code fully.qualified.Class.method}; every known test if the changes
+     * affect everything.
+     */
+    public Set<String> affected(SourceChanges changes) {
+        if (changes.affectsEverything()) {
+            return new TreeSet<>(membersByTest.keySet());
+        }
+        Set<String> used = new HashSet<>();
+        membersByTest.values().forEach(used::addAll);
+        Set<String> pages = new HashSet<>(changes.getPages());
+        for (String member : changes.getMembers()) {
+            if (!used.contains(member)) {
+                pages.add(member.substring(0, member.indexOf('.')));
+            }
+        }
+        Set<String> affected = new TreeSet<>();
+        membersByTest.forEach((test, members) -> {
+            String testClass = test.substring(0, test.lastIndexOf('.'));
+            if (changes.getTestClasses().contains(testClass)
+                    || members.stream().anyMatch(member -> changes.getMembers().contains(member)
+                    || pages.contains(member.substring(0, member.indexOf('.'))))) {
+                affected.add(test);
+            }
+        });
+        return affected;
+    }
+
+}
@@ -0,0 +1,72 @@
+package impact;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ImpactTrace collects the page object methods and locator fields a test uses while it runs, for the
+ * {@link ImpactMap}. A test thread starts a trace before the test method and ends it afterwards; in
+ * between, the page objects record every member they go through. Tracing is enabled with
+ * {@code -Dimpact.record=true}, usually on the nightly full run, and costs a stack walk per page object
+ * action.
+ */
+public final class ImpactTrace {
+
+    private static final boolean RECORDING = Boolean.getBoolean("impact.record");
+
+    private static final ThreadLocal<Set<String>> CURRENT = new ThreadLocal<>();
+
+    private ImpactTrace() {
+    }
+
+    /**
+     * Tells whether the current thread is tracing a test.
+     *
+     * @return true if page objects should record the members they use.
+     */
+    public static boolean isTracing() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Tells whether tests are traced in this run.
+     *
+     * @return true with {@code -Dimpact.record=true}.
+     */
+    public static boolean isRecording() {
+        return RECORDING;
+    }
+
+    /**
+     * Starts tracing the test about to run on the current thread, if tracing is enabled.
+     */
+    public static void begin() {
+        if (RECORDING) {
+            CURRENT.set(ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * Records a member used by the traced test.
+     *
+     * @param member the member, as {@code PageClass.member}.
+     */
+    public static void record(String member) {
+        Set<String> members = CURRENT.get();
+        if (members != null) {
+            members.add(member);
+        }
+    }
+
+    /**
+     * Ends the trace of the current thread.
+     *
+     * @return the members the test used, or an empty set if it was not traced.
+     */
+    public static Set<String> end() {
+        Set<String> members = CURRENT.get();
+        CURRENT.remove();
+        return members == null ? Set.of() : members;
+    }
+
+}
@@ -0,0 +1,315 @@
+package impact;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SourceChanges tells which parts of the project changed, at the granularity the {@link ImpactMap} knows:
+ * the methods and fields of page objects, whole page objects and whole test classes. Changes are read from
+ * {@code git diff -U0} or given as a list of files.
+ * <p>
+ * A changed line of a page object is attributed to the method or field declaration it belongs to, found
+ * by scanning the current source; comments, blank lines and annotations are ignored, and lines outside of
+ * any member, such as imports, change the whole page object. Static fields other than locators, such as
+ * {@code LoginPage.CUSTOMER_EMAIL}, are read outside of the page objects without being traced, so changing
+ * them may affect every test. A test class whose name ends with
+ * {@code Test} only affects itself. Any other change to the Java sources, resources, suite files or
+ * {@code pom.xml} may affect every test, while documentation and benchmarks affect none.
+ * </p>
+ */
+public final class SourceChanges {
+
+    private static final String PAGES = "src/main/java/pages/";
+
+    private static final String TESTS = "src/test/java/tests/";
+
+    private static final Pattern FILE_HEADER = Pattern.compile("^(---|\\+\\+\\+) (?:[ab]/)?(.+)$");
+
+    private static final Pattern HUNK = Pattern.compile("^@@ -\\d+(?:,\\d+)? \\+(\\d+)(?:,(\\d+))? @@");
+
+    private static final String MODIFIERS = "(?:(?:public|protected|private|static|final|abstract|synchronized|default|transient|volatile)\\s+)*";
+
+    private static final Pattern METHOD = Pattern.compile("^\\s*" + MODIFIERS + "(?:<[^>]*>\\s*)?(?:[\\w.<>\\[\\]?, ]+\\s+)?(\\w+)\\s*\\(");
+
+    private static final Pattern FIELD = Pattern.compile("^\\s*" + MODIFIERS + "[\\w.<>\\[\\]?, ]+?\\s+(\\w+)\\s*(?:=|;)");
+
+    private static final Pattern STRING = Pattern.compile("\"(?:\\\\.|[^\"\\\\])*\"|'(?:\\\\.|[^'\\\\])*'");
+
+    private boolean everything;
+    private final Set<String> pages = new TreeSet<>();
+    private final Set<String> members = new TreeSet<>();
+    private final Set<String> testClasses = new TreeSet<>();
+    private final List<String> reasons = new ArrayList<>();
+
+    private SourceChanges() {
+    }
+
+    /**
+     * Reads the changes of a git diff range, such as {@code origin/main...HEAD}, from the current directory.
+     *
+     * @param range the arguments of {@code git diff} selecting the changes, separated by spaces;
+     *              empty for the uncommitted changes.
+     * @return the changes.
+     * @throws IllegalStateException if git fails.
+     */
+    public static SourceChanges fromGitDiff(String range) {
+        List<String> command = new ArrayList<>(List.of("git", "diff", "-U0", "--no-color", "--no-ext-diff"));
+        command.addAll(Arrays.asList(range.trim().split("\\s+")));
+        command.removeIf(String::isEmpty);
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            if (process.waitFor() != 0) {
+                throw new IllegalStateException(String.join(" ", command) + " failed: " + output.trim());
+            }
+            return parse(output);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not run " + String.join(" ", command), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running git diff", e);
+        }
+    }
+
+    /**
+     * Treats every listed file as changed as a whole.
+     *
+     * @param files the paths of the changed files, relative to the project directory.
+     * @return the changes.
+     */
+    public static SourceChanges fromFiles(List<String> files) {
+        SourceChanges changes = new SourceChanges();
+        for (String file : files) {
+            if (!file.isBlank()) {
+                changes.add(file.trim().replace('\\', '/'), null);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Parses the output of {@code git diff -U0}.
+     *
+     * @param diff the unified diff without context lines.
+     * @return the changes.
+     */
+    static SourceChanges parse(String diff) {
+        SourceChanges changes = new SourceChanges();
+        changedLines(diff).forEach(changes::add);
+        return changes;
+    }
+
+    /**
+     * Lists the changed lines of every file of a {@code git diff -U0}, in the new version of the file.
+     * A pure deletion changes the lines on both sides of the deleted ones.
+     *
+     * @param diff the unified diff without context lines.
+     * @return the changed lines by file path, from 1, or null for a deleted file.
+     */
+    static Map<String, List<Integer>> changedLines(String diff) {
+        Map<String, List<Integer>> linesByFile = new LinkedHashMap<>();
+        String oldPath = null;
+        String path = null;
+        for (String line : diff.split("\n")) {
+            Matcher header = FILE_HEADER.matcher(line);
+            if (header.matches()) {
+                if (header.group(1).equals("---")) {
+                    oldPath = header.group(2);
+                } else {
+                    path = header.group(2).equals("/dev/null") ? oldPath : header.group(2);
+                    // A deleted file changes as a whole, which a null line list stands for.
+                    linesByFile.put(path, header.group(2).equals("/dev/null") ? null : new ArrayList<>());
+                }
+                continue;
+            }
+            Matcher hunk = HUNK.matcher(line);
+            if (hunk.find() && path != null && linesByFile.get(path) != null) {
+                int start = Integer.parseInt(hunk.group(1));
+                int count = hunk.group(2) == null ? 1 : Integer.parseInt(hunk.group(2));
+                List<Integer> lines = linesByFile.get(path);
+                if (count == 0) {
+                    // Pure deletion after line 'start': the lines around it changed.
+                    lines.add(start);
+                    lines.add(start + 1);
+                }
+                for (int i = 0; i < count; i++) {
+                    lines.add(start + i);
+                }
+            }
+        }
+        return linesByFile;
+    }
+
+    /**
+     * Tells whether a change may affect every test.
+     *
+     * @return true if the whole suite should run.
+     */
+    public boolean affectsEverything() {
+        return everything;
+    }
+
+    /**
+     * Retrieves the page objects that changed as a whole.
+     *
+     * @return the simple names of the page object classes.
+     */
+    public Set<String> getPages() {
+        return pages;
+    }
+
+    /**
+     * Retrieves the changed page object members.
+     *
+     * @return the members, as {@code PageClass.member}.
+     */
+    public Set<String> getMembers() {
+        return members;
+    }
+
+    /**
+     * Retrieves the changed test classes.
+     *
+     * @return the fully qualified names of the test classes.
+     */
+    public Set<String> getTestClasses() {
+        return testClasses;
+    }
+
+    /**
+     * Describes the changes in one line, for the console.
+     *
+     * @return the description.
+     */
+    public String describe() {
+        if (everything) {
+            return "every test, because of " + String.join(", ", reasons);
+        }
+        return "pages " + pages + ", members " + members + ", test classes " + testClasses;
+    }
+
+    /**
+     * Attributes the changed lines of a file.
+     *
+     * @param file  the path of the file.
+     * @param lines the changed lines, from 1, or null if the file changed as a whole.
+     */
+    private void add(String file, List<Integer> lines) {
+        String name = Path.of(file).getFileName().toString();
+        if (file.endsWith(".md") || file.startsWith("src/jmh/") || file.startsWith(".") || file.equals("requests.jsonl")) {
+            return;
+        }
+        if (file.startsWith(PAGES) && name.endsWith(".java")) {
+            String page = name.substring(0, name.length() - ".java".length());
+            Path source = Path.of(file);
+            if (lines == null || !Files.isRegularFile(source)) {
+                pages.add(page);
+                return;
+            }
+            List<String> code = read(source);
+            String[] owners = membersByLine(code);
+            for (int line : lines) {
+                String owner = line >= 1 && line <= owners.length ? owners[line - 1] : null;
+                if (owner == null) {
+                    pages.add(page);
+                } else if (!owner.isEmpty() && isSharedConstant(code.get(Arrays.asList(owners).indexOf(owner)))) {
+                    everything = true;
+                    reasons.add(page + "." + owner);
+                } else if (!owner.isEmpty()) {
+                    members.add(page + "." + owner);
+                }
+            }
+            return;
+        }
+        if (file.startsWith(TESTS) && name.endsWith("Test.java") && !name.equals("BaseTest.java")) {
+            testClasses.add("tests." + name.substring(0, name.length() - ".java".length()));
+            return;
+        }
+        everything = true;
+        reasons.add(file);
+    }
+
+    /**
+     * Finds the member each line of a Java source belongs to.
+     *
+     * @param lines the lines of the source.
+     * @return for every line, the name of its method or field, an empty string for a line that does not
+     * matter (blank, comment or annotation), or null for a line of the class itself.
+     */
+    static String[] membersByLine(List<String> lines) {
+        String[] owners = new String[lines.size()];
+        int depth = 0;
+        boolean inComment = false;
+        String current = null;
+        for (int i = 0; i < lines.size(); i++) {
+            StringBuilder code = new StringBuilder();
+            String line = STRING.matcher(lines.get(i)).replaceAll("\"\"");
+            for (int c = 0; c < line.length(); c++) {
+                if (inComment) {
+                    if (line.startsWith("*/", c)) {
+                        inComment = false;
+                        c++;
+                    }
+                } else if (line.startsWith("/*", c)) {
+                    inComment = true;
+                    c++;
+                } else if (line.startsWith("//", c)) {
+                    break;
+                } else {
+                    code.append(line.charAt(c));
+                }
+            }
+            String text = code.toString().trim();
+            if (depth == 1 && current == null && !text.isEmpty() && !text.startsWith("@")) {
+                Matcher field = FIELD.matcher(text);
+                Matcher method = METHOD.matcher(text);
+                current = field.find() ? field.group(1) : method.find() ? method.group(1) : null;
+            }
+            owners[i] = current != null ? current : text.isEmpty() || text.startsWith("@") ? "" : null;
+            for (char c : text.toCharArray()) {
+                depth += c == '{' ? 1 : c == '}' ? -1 : 0;
+            }
+            if (current != null && depth == 1 && (text.endsWith(";") || text.endsWith("}"))) {
+                current = null;
+            }
+        }
+        return owners;
+    }
+
+    /**
+     * Tells whether a declaration is a static field other than a locator, such as a constant that tests
+     * and API helpers read directly.
+     *
+     * @param declaration the first line of the declaration.
+     * @return true for a static field whose type is not {@code By}.
+     */
+    static boolean isSharedConstant(String declaration) {
+        Matcher field = FIELD.matcher(STRING.matcher(declaration).replaceAll("\"\""));
+        if (!field.find()) {
+            return false;
+        }
+        List<String> words = Arrays.asList(field.group().substring(0, field.start(1)).trim().split("\\s+"));
+        return words.contains("static") && !words.get(words.size() - 1).equals("By");
+    }
+
+    private static List<String> read(Path source) {
+        try {
+            return Files.readAllLines(source, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + source, e);
+        }
+    }
+
+}
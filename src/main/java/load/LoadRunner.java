@@ -0,0 +1,307 @@
+package load;
+
+import api.Authentication;
+import driver.DriverFactory;
+import driver.ExecutionProfile;
+import metrics.LatencyHistogram;
+import metrics.LatencyRecorder;
+import mirror.Mirror;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import pages.LoginPage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LoadRunner puts browser-level load on a copy of the shop by running the page object flows of the
+ * functional suite as virtual users. Every virtual user drives its own browser in a loop: it picks a
+ * {@link Scenario} from the weighted mix, starts on the home page with a clean session, runs the flow
+ * and thinks before the next iteration.
+ * <p>
+ * Run with {@code mvn -Pload compile exec:java}, configured with system properties:
+ * <ul>
+ *     <li>{@code load.users}: the number of concurrent virtual users and browsers (4).</li>
+ *     <li>{@code load.rampUpSeconds}: the time over which the users are started, evenly spaced (0).</li>
+ *     <li>{@code load.durationSeconds}: how long the users keep starting new iterations (60).</li>
+ *     <li>{@code load.iterations}: the iterations per user; when set, replaces the duration.</li>
+ *     <li>{@code load.thinkTimeMillis}: the mean pause between iterations, varied by ±50% (1000).</li>
+ *     <li>{@code load.mix}: the weighted scenarios, e.g. {@code cart:2,wishlist:1,category:3} (all equal).</li>
+ *     <li>{@code load.profile}: the {@link ExecutionProfile} of the browsers ({@code lean}, headless).</li>
+ *     <li>{@code load.dir}: the directory of the reports ({@code target/load}).</li>
+ *     <li>{@code base.url}: the shop to load, see {@link Mirror#baseUrl()}.</li>
+ * </ul>
+ * At the end, the throughput, error rate and latency percentiles of every flow are printed and written
+ * to {@code load-report.csv}, and the latencies of every page object step to {@code latency.csv}.
+ * </p>
+ */
+public final class LoadRunner {
+
+    private final int users;
+    private final Duration rampUp;
+    private final Duration duration;
+    private final int iterations;
+    private final Duration thinkTime;
+    private final Map<Scenario, Integer> mix;
+    private final ExecutionProfile profile;
+
+    private final Map<Scenario, FlowStats> stats = new EnumMap<>(Scenario.class);
+    private volatile long deadline;
+
+    private LoadRunner(int users, Duration rampUp, Duration duration, int iterations, Duration thinkTime,
+                       Map<Scenario, Integer> mix, ExecutionProfile profile) {
+        this.users = Math.max(1, users);
+        this.rampUp = rampUp;
+        this.duration = duration;
+        this.iterations = iterations;
+        this.thinkTime = thinkTime;
+        this.mix = mix;
+        this.profile = profile;
+        for (Scenario scenario : mix.keySet()) {
+            stats.put(scenario, new FlowStats());
+        }
+    }
+
+    /**
+     * Runs the load configured with system properties and writes the reports.
+     *
+     * @param args ignored.
+     * @throws InterruptedException if the runner is interrupted while the virtual users run.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        // Step latencies are recorded by the page objects only when metrics are on.
+        System.setProperty("metrics", System.getProperty("metrics", "true"));
+        LoadRunner runner = new LoadRunner(
+                Integer.getInteger("load.users", 4),
+                Duration.ofSeconds(Long.getLong("load.rampUpSeconds", 0)),
+                Duration.ofSeconds(Long.getLong("load.durationSeconds", 60)),
+                Integer.getInteger("load.iterations", 0),
+                Duration.ofMillis(Long.getLong("load.thinkTimeMillis", 1000)),
+                parseMix(System.getProperty("load.mix", "cart:1,wishlist:1,category:1")),
+                ExecutionProfile.valueOf(System.getProperty("load.profile", "lean").trim().toUpperCase(Locale.ROOT)));
+        Path directory = Path.of(System.getProperty("load.dir", "target/load"));
+        Mirror.start();
+        try {
+            long elapsedNanos = runner.run();
+            System.out.println(runner.report(elapsedNanos));
+            runner.export(directory, elapsedNanos);
+            LatencyRecorder.export(directory);
+            System.out.println("Load reports written to " + directory.toAbsolutePath());
+        } finally {
+            Mirror.stop();
+        }
+    }
+
+    /**
+     * Parses a weighted scenario mix such as {@code cart:2,category:1}. A scenario without a weight counts once.
+     *
+     * @param mix the mix to parse.
+     * @return the weight of every scenario in the mix, in the order given.
+     */
+    static Map<Scenario, Integer> parseMix(String mix) {
+        Map<Scenario, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split(":");
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            if (weight > 0) {
+                weights.merge(Scenario.of(parts[0]), weight, Integer::sum);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("The load mix '" + mix + "' has no scenario with a positive weight");
+        }
+        return weights;
+    }
+
+    /**
+     * Starts the virtual users, spread over the ramp-up, and waits until all of them finished.
+     *
+     * @return how long the load ran, in nanoseconds.
+     */
+    private long run() throws InterruptedException {
+        long start = System.nanoTime();
+        deadline = iterations > 0 ? Long.MAX_VALUE : start + rampUp.toNanos() + duration.toNanos();
+        System.out.println("Starting " + users + " virtual users over " + rampUp.toSeconds() + " s, "
+                + (iterations > 0 ? iterations + " iterations each" : "for " + duration.toSeconds() + " s")
+                + ", mix " + mix);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            long startAt = start + (users == 1 ? 0 : rampUp.toNanos() * i / (users - 1));
+            Thread thread = new Thread(() -> runUser(startAt), "virtual-user-" + (i + 1));
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void runUser(long startAt) {
+        sleepNanos(startAt - System.nanoTime());
+        WebDriver driver = null;
+        try {
+            for (int i = 0; iterations > 0 ? i < iterations : System.nanoTime() < deadline; i++) {
+                if (driver == null) {
+                    driver = DriverFactory.createDriver(profile);
+                }
+                Scenario scenario = pick();
+                FlowStats flow = stats.get(scenario);
+                long iterationStart = System.nanoTime();
+                try {
+                    open(driver, scenario);
+                    scenario.run(driver);
+                    flow.latency.recordNanos(System.nanoTime() - iterationStart);
+                } catch (RuntimeException | AssertionError e) {
+                    flow.fail(e);
+                    if (e instanceof NoSuchSessionException) {
+                        quit(driver);
+                        driver = null;
+                    }
+                } finally {
+                    flow.attempts.increment();
+                }
+                long pause = thinkTime.toNanos() / 2 + ThreadLocalRandom.current().nextLong(thinkTime.toNanos() + 1);
+                sleepNanos(pause);
+            }
+        } catch (WebDriverException e) {
+            System.out.println(Thread.currentThread().getName() + " stopped: " + e.getMessage());
+        } finally {
+            quit(driver);
+        }
+    }
+
+    /**
+     * Clears the session and opens the home page, already logged in if the scenario starts authenticated.
+     */
+    private static void open(WebDriver driver, Scenario scenario) {
+        String url = Mirror.baseUrl();
+        if (driver.getCurrentUrl().startsWith(url)) {
+            driver.manage().deleteAllCookies();
+            ((JavascriptExecutor) driver).executeScript(
+                    "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}");
+        }
+        if (scenario.startsAuthenticated()) {
+            String token = Authentication.token(LoginPage.CUSTOMER_EMAIL, LoginPage.CUSTOMER_PASSWORD);
+            Authentication.openAuthenticated(driver, url, token);
+        } else {
+            driver.get(url);
+        }
+    }
+
+    private Scenario pick() {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int ticket = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<Scenario, Integer> entry : mix.entrySet()) {
+            ticket -= entry.getValue();
+            if (ticket < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    /**
+     * Builds the summary of every flow: attempts, errors, throughput and latency percentiles.
+     */
+    private String report(long elapsedNanos) {
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+                "Load ran %.1f s with %d virtual users%n%-10s %8s %8s %8s %10s %9s %9s %9s %9s%n", elapsedNanos / 1e9, users,
+                "flow", "attempts", "errors", "error%", "per min", "p50 ms", "p90 ms", "p95 ms", "p99 ms"));
+        stats.forEach((scenario, flow) -> {
+            long attempts = flow.attempts.sum();
+            long errors = flow.errors.sum();
+            report.append(String.format(Locale.ROOT, "%-10s %8d %8d %8.1f %10.1f %9.0f %9.0f %9.0f %9.0f%n",
+                    scenario.name().toLowerCase(Locale.ROOT), attempts, errors,
+                    attempts == 0 ? 0 : 100.0 * errors / attempts, (attempts - errors) * 60e9 / elapsedNanos,
+                    flow.millis(50), flow.millis(90), flow.millis(95), flow.millis(99)));
+            flow.errorTypes.forEach((type, count) ->
+                    report.append(String.format(Locale.ROOT, "           %d x %s%n", count.sum(), type)));
+        });
+        return report.toString();
+    }
+
+    private void export(Path directory, long elapsedNanos) {
+        StringBuilder csv = new StringBuilder(
+                "flow,attempts,errors,error_rate,throughput_per_min,mean_ms,p50_ms,p90_ms,p95_ms,p99_ms,max_ms\n");
+        stats.forEach((scenario, flow) -> {
+            long attempts = flow.attempts.sum();
+            long errors = flow.errors.sum();
+            csv.append(String.format(Locale.ROOT, "%s,%d,%d,%.4f,%.2f,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f%n",
+                    scenario.name().toLowerCase(Locale.ROOT), attempts, errors,
+                    attempts == 0 ? 0.0 : (double) errors / attempts, (attempts - errors) * 60e9 / elapsedNanos,
+                    flow.latency.getMeanMicros() / 1000.0, flow.millis(50), flow.millis(90), flow.millis(95),
+                    flow.millis(99), flow.latency.getMaxMicros() / 1000.0));
+        });
+        try {
+            Files.createDirectories(directory);
+            Files.writeString(directory.resolve("load-report.csv"), csv, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the load report to " + directory, e);
+        }
+    }
+
+    private static void quit(WebDriver driver) {
+        if (driver == null) {
+            return;
+        }
+        try {
+            driver.quit();
+        } catch (WebDriverException e) {
+            System.out.println("Could not quit a browser: " + e.getMessage());
+        }
+    }
+
+    private static void sleepNanos(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted", e);
+        }
+    }
+
+    /**
+     * The results of one flow across all virtual users. Only successful iterations count towards the latencies.
+     */
+    private static final class FlowStats {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final Map<String, LongAdder> errorTypes = new ConcurrentHashMap<>();
+
+        private void fail(Throwable error) {
+            errors.increment();
+            errorTypes.computeIfAbsent(error.getClass().getSimpleName(), key -> new LongAdder()).increment();
+        }
+
+        private double millis(double percentile) {
+            return latency.getPercentileMicros(percentile) / 1000.0;
+        }
+
+    }
+
+}
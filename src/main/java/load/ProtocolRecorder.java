@@ -0,0 +1,224 @@
+package load;
+
+import api.Authentication;
+import api.ShopApi;
+import driver.DriverFactory;
+import driver.ExecutionProfile;
+import mirror.Mirror;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.json.Json;
+import pages.LoginPage;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ProtocolRecorder runs a {@link Scenario} once in a real browser and records the API calls its front end
+ * makes, which {@link ProtocolScript#correlate} turns into a script the {@link ProtocolReplayer} can run
+ * without a browser. Only XHR and fetch requests are recorded; documents, scripts, styles and images are
+ * what the browser loads, not what the flow does.
+ * <p>
+ * Run with {@code mvn -Pload compile exec:java -Dload.main=load.ProtocolRecorder -Dprotocol.flow=cart}.
+ * The script is written to {@code protocol/<flow>.json}, in the directory set with {@code protocol.dir}.
+ * The customer's email and password become the parameters of the script. A flow that starts
+ * authenticated logs in over the API before the browser opens, so that login is the first step of
+ * the script and its token is extracted from it.
+ * </p>
+ */
+public final class ProtocolRecorder {
+
+    /**
+     * The request headers worth replaying. The others are set by the browser or the HTTP client.
+     */
+    private static final Set<String> HEADERS = Set.of("authorization", "content-type", "accept");
+
+    /**
+     * The resource types of requests made by the application's code rather than by the page.
+     */
+    private static final Set<String> API_TYPES = Set.of("XHR", "Fetch");
+
+    /**
+     * How long to wait for the responses of calls still running when the flow ended.
+     */
+    private static final long SETTLE_MILLIS = 5000;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Object, Long> order = new ConcurrentHashMap<>();
+    private final Map<Object, Map<?, ?>> requests = new ConcurrentHashMap<>();
+    private final Map<Object, Map<?, ?>> responses = new ConcurrentHashMap<>();
+    private final Map<Long, ProtocolScript.Exchange> exchanges = new ConcurrentSkipListMap<>();
+
+    private ProtocolRecorder() {
+    }
+
+    /**
+     * Records the flow given with {@code protocol.flow} and writes its script.
+     *
+     * @param args ignored.
+     */
+    public static void main(String[] args) {
+        Scenario scenario = Scenario.of(System.getProperty("protocol.flow", "cart"));
+        ExecutionProfile profile = ExecutionProfile.valueOf(
+                System.getProperty("load.profile", "lean").trim().toUpperCase(Locale.ROOT));
+        Path file = Path.of(System.getProperty("protocol.dir", "protocol"),
+                scenario.name().toLowerCase(Locale.ROOT) + ".json");
+        Mirror.start();
+        try {
+            ProtocolScript script = record(scenario, profile);
+            script.save(file);
+            System.out.println("Recorded " + script.getSteps().size() + " API calls of the "
+                    + script.getFlow() + " flow to " + file.toAbsolutePath());
+        } finally {
+            Mirror.stop();
+        }
+    }
+
+    /**
+     * Runs a scenario in a new browser and correlates the API calls it made.
+     *
+     * @param scenario the flow to record.
+     * @param profile  the profile of the browser.
+     * @return the script of the flow.
+     */
+    public static ProtocolScript record(Scenario scenario, ExecutionProfile profile) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("email", LoginPage.CUSTOMER_EMAIL);
+        parameters.put("password", LoginPage.CUSTOMER_PASSWORD);
+        ProtocolRecorder recorder = new ProtocolRecorder();
+        WebDriver driver = DriverFactory.createDriver(profile);
+        try {
+            recorder.attach(driver);
+            String url = Mirror.baseUrl();
+            if (scenario.startsAuthenticated()) {
+                Authentication.openAuthenticated(driver, url, recorder.login(parameters));
+            } else {
+                driver.get(url);
+            }
+            scenario.run(driver);
+            recorder.settle();
+        } finally {
+            driver.quit();
+        }
+        return ProtocolScript.correlate(scenario.name().toLowerCase(Locale.ROOT),
+                List.copyOf(recorder.exchanges.values()), parameters);
+    }
+
+    /**
+     * Logs in over the API and records it as an exchange, as the login page would have made it.
+     *
+     * @return the access token.
+     */
+    private String login(Map<String, String> parameters) {
+        String email = parameters.get("email");
+        String password = parameters.get("password");
+        String token = (String) ShopApi.login(email, password).get("access_token");
+        String body = new Json().toJson(Map.of("email", email, "password", password));
+        exchanges.put(sequence.getAndIncrement(), new ProtocolScript.Exchange("POST", ShopApi.API_URL + "/users/login",
+                Map.of("Content-Type", "application/json", "Accept", "application/json"), body, 200,
+                new Json().toJson(Map.of("access_token", token))));
+        return token;
+    }
+
+    /**
+     * Listens to the network events of the browser session and keeps the finished API calls in the
+     * order their requests were sent.
+     */
+    private void attach(WebDriver driver) {
+        DevTools devTools = ((HasDevTools) driver).getDevTools();
+        devTools.createSessionIfThereIsNotOne();
+        devTools.send(new Command<>("Network.enable", Map.of()));
+        devTools.send(new Command<>("Network.setCacheDisabled", Map.of("cacheDisabled", true)));
+        devTools.addListener(event("Network.requestWillBeSent"), sent -> {
+            if (API_TYPES.contains(String.valueOf(sent.get("type")))) {
+                order.put(sent.get("requestId"), sequence.getAndIncrement());
+                requests.put(sent.get("requestId"), (Map<?, ?>) sent.get("request"));
+            }
+        });
+        devTools.addListener(event("Network.responseReceived"), received -> {
+            if (requests.containsKey(received.get("requestId"))) {
+                responses.put(received.get("requestId"), (Map<?, ?>) received.get("response"));
+            }
+        });
+        devTools.addListener(event("Network.loadingFailed"), failed -> forget(failed.get("requestId")));
+        devTools.addListener(event("Network.loadingFinished"), finished -> {
+            Object requestId = finished.get("requestId");
+            Map<?, ?> request = requests.get(requestId);
+            Map<?, ?> response = responses.get(requestId);
+            if (request != null && response != null) {
+                exchanges.put(order.get(requestId), new ProtocolScript.Exchange(
+                        String.valueOf(request.get("method")),
+                        String.valueOf(request.get("url")),
+                        headers((Map<?, ?>) request.get("headers")),
+                        (String) request.get("postData"),
+                        ((Number) response.get("status")).intValue(),
+                        body(devTools, requestId)));
+            }
+            forget(requestId);
+        });
+    }
+
+    /**
+     * Waits until every API call the flow started has finished or failed.
+     */
+    private void settle() {
+        long deadline = System.currentTimeMillis() + SETTLE_MILLIS;
+        while (!requests.isEmpty() && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void forget(Object requestId) {
+        requests.remove(requestId);
+        responses.remove(requestId);
+        order.remove(requestId);
+    }
+
+    private static Map<String, String> headers(Map<?, ?> headers) {
+        Map<String, String> kept = new LinkedHashMap<>();
+        if (headers != null) {
+            headers.forEach((name, value) -> {
+                if (HEADERS.contains(String.valueOf(name).toLowerCase(Locale.ROOT))) {
+                    kept.put(String.valueOf(name), String.valueOf(value));
+                }
+            });
+        }
+        return kept;
+    }
+
+    /**
+     * Fetches the body of a finished response.
+     *
+     * @return the body if it is text, otherwise null.
+     */
+    private static String body(DevTools devTools, Object requestId) {
+        try {
+            Map<String, Object> result = devTools.send(new Command<>("Network.getResponseBody",
+                    Map.of("requestId", requestId), input -> input.read(Json.MAP_TYPE)));
+            return Boolean.TRUE.equals(result.get("base64Encoded")) ? null : (String) result.get("body");
+        } catch (WebDriverException e) {
+            return null;
+        }
+    }
+
+    private static Event<Map<String, Object>> event(String name) {
+        return new Event<>(name, input -> input.read(Json.MAP_TYPE));
+    }
+
+}
@@ -0,0 +1,305 @@
+package load;
+
+import metrics.LatencyHistogram;
+import org.openqa.selenium.json.Json;
+import utils.FileRows;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ProtocolReplayer puts API-level load on the shop by replaying a {@link ProtocolScript} without a browser.
+ * Every virtual user is a virtual thread that sends the calls of the script in order over one shared,
+ * non-blocking HTTP client, so thousands of users fit on one machine where browsers allow a few dozen.
+ * <p>
+ * Run with {@code mvn -Pload compile exec:java -Dload.main=load.ProtocolReplayer -Dprotocol.script=protocol/cart.json},
+ * configured with the {@code load.*} properties of the {@link LoadRunner} ({@code load.users} defaults to 100 here,
+ * {@code load.mix} and {@code load.profile} do not apply) and:
+ * <ul>
+ *     <li>{@code protocol.script}: the script to replay ({@code protocol/cart.json}).</li>
+ *     <li>{@code protocol.data}: a CSV or JSONL file with a column per script parameter, such as
+ *     {@code email} and {@code password}; every iteration takes the next row, starting over at the end.
+ *     Without it, the recorded values are used.</li>
+ *     <li>{@code protocol.timeoutSeconds}: the timeout of every call (30).</li>
+ * </ul>
+ * A call fails when its status differs from the recorded one or a value to extract is missing, which
+ * ends the iteration. The throughput, error rate and latency percentiles of the flow and of every call
+ * are printed and written to {@code protocol-report.csv}.
+ * </p>
+ */
+public final class ProtocolReplayer {
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    private static final Json JSON = new Json();
+
+    private final ProtocolScript script;
+    private final int users;
+    private final Duration rampUp;
+    private final Duration duration;
+    private final int iterations;
+    private final Duration thinkTime;
+    private final Duration timeout;
+    private final Path data;
+
+    private final CallStats flow = new CallStats();
+    private final Map<String, CallStats> steps = new LinkedHashMap<>();
+    private FileRows rows;
+    private volatile long deadline;
+
+    private ProtocolReplayer(ProtocolScript script, int users, Duration rampUp, Duration duration, int iterations,
+                             Duration thinkTime, Duration timeout, Path data) {
+        this.script = script;
+        this.users = Math.max(1, users);
+        this.rampUp = rampUp;
+        this.duration = duration;
+        this.iterations = iterations;
+        this.thinkTime = thinkTime;
+        this.timeout = timeout;
+        this.data = data;
+        for (ProtocolScript.Step step : script.getSteps()) {
+            steps.putIfAbsent(step.name(), new CallStats());
+        }
+    }
+
+    /**
+     * Replays the script configured with system properties and writes the report.
+     *
+     * @param args ignored.
+     */
+    public static void main(String[] args) {
+        String data = System.getProperty("protocol.data");
+        ProtocolReplayer replayer = new ProtocolReplayer(
+                ProtocolScript.load(Path.of(System.getProperty("protocol.script", "protocol/cart.json"))),
+                Integer.getInteger("load.users", 100),
+                Duration.ofSeconds(Long.getLong("load.rampUpSeconds", 0)),
+                Duration.ofSeconds(Long.getLong("load.durationSeconds", 60)),
+                Integer.getInteger("load.iterations", 0),
+                Duration.ofMillis(Long.getLong("load.thinkTimeMillis", 1000)),
+                Duration.ofSeconds(Long.getLong("protocol.timeoutSeconds", 30)),
+                data == null ? null : Path.of(data));
+        Path directory = Path.of(System.getProperty("load.dir", "target/load"));
+        long elapsedNanos = replayer.run();
+        System.out.println(replayer.report(elapsedNanos));
+        replayer.export(directory, elapsedNanos);
+        System.out.println("Protocol report written to " + directory.resolve("protocol-report.csv").toAbsolutePath());
+    }
+
+    /**
+     * Starts the virtual users, spread over the ramp-up, and waits until all of them finished.
+     *
+     * @return how long the load ran, in nanoseconds.
+     */
+    private long run() {
+        long start = System.nanoTime();
+        deadline = iterations > 0 ? Long.MAX_VALUE : start + rampUp.toNanos() + duration.toNanos();
+        System.out.println("Replaying the " + script.getFlow() + " flow (" + script.getSteps().size() + " calls) with "
+                + users + " virtual users over " + rampUp.toSeconds() + " s, "
+                + (iterations > 0 ? iterations + " iterations each" : "for " + duration.toSeconds() + " s"));
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < users; i++) {
+                long startAt = start + (users == 1 ? 0 : rampUp.toNanos() * i / (users - 1));
+                executor.submit(() -> runUser(startAt));
+            }
+        } finally {
+            if (rows != null) {
+                rows.close();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void runUser(long startAt) {
+        try {
+            sleepNanos(startAt - System.nanoTime());
+            for (int i = 0; iterations > 0 ? i < iterations : System.nanoTime() < deadline; i++) {
+                long iterationStart = System.nanoTime();
+                try {
+                    runIteration(nextParameters());
+                    flow.latency.recordNanos(System.nanoTime() - iterationStart);
+                } catch (RuntimeException e) {
+                    flow.fail(e.getMessage());
+                } finally {
+                    flow.attempts.increment();
+                }
+                sleepNanos(thinkTime.toNanos() / 2 + ThreadLocalRandom.current().nextLong(thinkTime.toNanos() + 1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sends the calls of the script in order, extracting the variables later calls need.
+     *
+     * @throws IllegalStateException if a call fails, which ends the iteration.
+     */
+    private void runIteration(Map<String, String> variables) {
+        for (ProtocolScript.Step step : script.getSteps()) {
+            CallStats stats = steps.get(step.name());
+            long callStart = System.nanoTime();
+            try {
+                HttpResponse<String> response = send(step, variables);
+                if (response.statusCode() != step.status()) {
+                    throw new IllegalStateException("status " + response.statusCode() + " of " + step.name());
+                }
+                if (!step.extract().isEmpty()) {
+                    Object json = JSON.toType(response.body(), Object.class);
+                    step.extract().forEach((name, path) -> {
+                        String value = ProtocolScript.extract(json, path);
+                        if (value == null) {
+                            throw new IllegalStateException("no " + path + " in " + step.name());
+                        }
+                        variables.put(name, value);
+                    });
+                }
+                stats.latency.recordNanos(System.nanoTime() - callStart);
+            } catch (RuntimeException e) {
+                stats.fail(e.getMessage());
+                throw e;
+            } finally {
+                stats.attempts.increment();
+            }
+        }
+    }
+
+    private HttpResponse<String> send(ProtocolScript.Step step, Map<String, String> variables) {
+        String body = ProtocolScript.resolve(step.body(), variables);
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(ProtocolScript.resolve(step.url(), variables)))
+                .timeout(timeout)
+                .method(step.method(), body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8));
+        step.headers().forEach((name, value) -> request.header(name, ProtocolScript.resolve(value, variables)));
+        try {
+            return CLIENT.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString()).join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException(e.getCause().getClass().getSimpleName() + " of " + step.name(), e.getCause());
+        }
+    }
+
+    /**
+     * Takes the parameters of the next iteration from the data file, or the recorded values without one.
+     */
+    private Map<String, String> nextParameters() {
+        Map<String, String> variables = new HashMap<>(script.getParameters());
+        if (data == null) {
+            return variables;
+        }
+        List<String> names = List.copyOf(script.getParameters().keySet());
+        Object[] row;
+        synchronized (this) {
+            if (rows == null || !rows.hasNext()) {
+                rows = FileRows.open(data).columns(names.toArray(String[]::new));
+                if (!rows.hasNext()) {
+                    throw new IllegalStateException("The data file " + data + " has no rows");
+                }
+            }
+            row = rows.next();
+        }
+        for (int i = 0; i < names.size() && i < row.length; i++) {
+            if (row[i] != null) {
+                variables.put(names.get(i), String.valueOf(row[i]));
+            }
+        }
+        return variables;
+    }
+
+    /**
+     * Builds the summary of the flow and of every call: attempts, errors, throughput and latency percentiles.
+     */
+    private String report(long elapsedNanos) {
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+                "Protocol replay ran %.1f s with %d virtual users%n%-40s %8s %8s %8s %10s %9s %9s %9s %9s%n",
+                elapsedNanos / 1e9, users,
+                "call", "attempts", "errors", "error%", "per s", "p50 ms", "p90 ms", "p95 ms", "p99 ms"));
+        append(report, "flow " + script.getFlow(), flow, elapsedNanos);
+        steps.forEach((name, stats) -> append(report, name, stats, elapsedNanos));
+        return report.toString();
+    }
+
+    private static void append(StringBuilder report, String name, CallStats stats, long elapsedNanos) {
+        long attempts = stats.attempts.sum();
+        long errors = stats.errors.sum();
+        report.append(String.format(Locale.ROOT, "%-40s %8d %8d %8.1f %10.1f %9.0f %9.0f %9.0f %9.0f%n",
+                name.length() > 40 ? name.substring(0, 37) + "..." : name, attempts, errors,
+                attempts == 0 ? 0 : 100.0 * errors / attempts, (attempts - errors) * 1e9 / elapsedNanos,
+                stats.millis(50), stats.millis(90), stats.millis(95), stats.millis(99)));
+        stats.errorTypes.forEach((type, count) ->
+                report.append(String.format(Locale.ROOT, "     %d x %s%n", count.sum(), type)));
+    }
+
+    private void export(Path directory, long elapsedNanos) {
+        StringBuilder csv = new StringBuilder(
+                "call,attempts,errors,error_rate,throughput_per_s,mean_ms,p50_ms,p90_ms,p95_ms,p99_ms,max_ms\n");
+        Map<String, CallStats> rowsByName = new LinkedHashMap<>();
+        rowsByName.put("flow " + script.getFlow(), flow);
+        rowsByName.putAll(steps);
+        rowsByName.forEach((name, stats) -> {
+            long attempts = stats.attempts.sum();
+            long errors = stats.errors.sum();
+            csv.append(String.format(Locale.ROOT, "\"%s\",%d,%d,%.4f,%.2f,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f%n",
+                    name.replace("\"", "\"\""), attempts, errors,
+                    attempts == 0 ? 0.0 : (double) errors / attempts, (attempts - errors) * 1e9 / elapsedNanos,
+                    stats.latency.getMeanMicros() / 1000.0, stats.millis(50), stats.millis(90), stats.millis(95),
+                    stats.millis(99), stats.latency.getMaxMicros() / 1000.0));
+        });
+        try {
+            Files.createDirectories(directory);
+            Files.writeString(directory.resolve("protocol-report.csv"), csv, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the protocol report to " + directory, e);
+        }
+    }
+
+    private static void sleepNanos(long nanos) throws InterruptedException {
+        if (nanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    }
+
+    /**
+     * The results of the flow or of one call across all virtual users. Only successes count towards the latencies.
+     */
+    private static final class CallStats {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final Map<String, LongAdder> errorTypes = new ConcurrentHashMap<>();
+
+        private void fail(String error) {
+            errors.increment();
+            errorTypes.computeIfAbsent(String.valueOf(error), key -> new LongAdder()).increment();
+        }
+
+        private double millis(double percentile) {
+            return latency.getPercentileMicros(percentile) / 1000.0;
+        }
+
+    }
+
+}
@@ -0,0 +1,319 @@
+package load;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonOutput;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * ProtocolScript is the browserless version of a page object flow: the API calls the shop's
+ * front end made while the flow ran, in order, with their dynamic values turned into variables.
+ * <p>
+ * A value returned by one response and sent again in a later request, such as an access token
+ * or a cart id, is extracted from the response by its JSON path and referenced as {@code ${name}}
+ * in the requests that use it. Input values, such as the customer's email and password, become
+ * parameters with the recorded values as defaults, so a replay can feed other users from a data file.
+ * </p>
+ * Scripts are saved as JSON, one file per flow, and can be edited by hand.
+ */
+public final class ProtocolScript {
+
+    /**
+     * Values shorter than this are not correlated, since they match too many unrelated values.
+     */
+    private static final int MIN_CORRELATED_LENGTH = 8;
+
+    private static final Pattern VARIABLE = Pattern.compile("\\$\\{([A-Za-z0-9_]+)}");
+
+    private static final Json JSON = new Json();
+
+    /**
+     * A call of the script.
+     *
+     * @param name    the name of the step in reports: its method and URL path with variables.
+     * @param method  the HTTP method.
+     * @param url     the URL, possibly with variables.
+     * @param headers the headers to send, possibly with variables.
+     * @param body    the request body, possibly with variables, or null.
+     * @param status  the status the recorded response had.
+     * @param extract the variables to extract from the response, by name, as JSON paths like {@code data.0.id}.
+     */
+    public record Step(String name, String method, String url, Map<String, String> headers, String body,
+                       int status, Map<String, String> extract) {
+    }
+
+    /**
+     * An API call observed while a flow ran.
+     *
+     * @param method       the HTTP method.
+     * @param url          the URL.
+     * @param headers      the headers worth replaying, such as Authorization and Content-Type.
+     * @param body         the request body, or null.
+     * @param status       the status of the response.
+     * @param responseBody the body of the response, or null if it was not text.
+     */
+    public record Exchange(String method, String url, Map<String, String> headers, String body,
+                           int status, String responseBody) {
+    }
+
+    private final String flow;
+    private final Map<String, String> parameters;
+    private final List<Step> steps;
+
+    private ProtocolScript(String flow, Map<String, String> parameters, List<Step> steps) {
+        this.flow = flow;
+        this.parameters = parameters;
+        this.steps = steps;
+    }
+
+    /**
+     * Builds a script from the exchanges of a recorded flow. Parameter values are replaced first,
+     * then every remaining value that an earlier response returned is replaced by a variable
+     * extracted from the most recent response that returned it.
+     *
+     * @param flow       the name of the flow.
+     * @param exchanges  the API calls of the flow, in the order they were made.
+     * @param parameters the input values of the flow by parameter name, such as the email.
+     * @return the parameterized script.
+     */
+    public static ProtocolScript correlate(String flow, List<Exchange> exchanges, Map<String, String> parameters) {
+        Map<String, String> known = new LinkedHashMap<>();
+        parameters.forEach((name, value) -> known.put(value, name));
+        List<Map<String, String>> candidates = new ArrayList<>();
+        List<Step> steps = new ArrayList<>();
+        Set<String> used = new HashSet<>();
+        for (int i = 0; i < exchanges.size(); i++) {
+            Exchange exchange = exchanges.get(i);
+            List<String> values = new ArrayList<>(known.keySet());
+            values.sort(Comparator.comparingInt(String::length).reversed());
+            String url = substitute(exchange.url(), values, known, used);
+            Map<String, String> headers = new LinkedHashMap<>();
+            exchange.headers().forEach((header, value) -> headers.put(header, substitute(value, values, known, used)));
+            String body = exchange.body() == null ? null : substitute(exchange.body(), values, known, used);
+            steps.add(new Step(exchange.method() + " " + pathOf(url), exchange.method(), url, headers, body,
+                    exchange.status(), new LinkedHashMap<>()));
+
+            Map<String, String> returned = new LinkedHashMap<>();
+            if (exchange.responseBody() != null && !exchange.responseBody().isBlank()) {
+                try {
+                    flatten("", JSON.toType(exchange.responseBody(), Object.class), returned);
+                } catch (RuntimeException e) {
+                    returned.clear();
+                }
+            }
+            Map<String, String> variables = new LinkedHashMap<>();
+            returned.forEach((path, value) -> {
+                if (value.length() >= MIN_CORRELATED_LENGTH && !parameters.containsValue(value)) {
+                    String name = variableName(path, steps.size() - 1);
+                    if (variables.containsKey(name)) {
+                        name = path.replaceAll("[^A-Za-z0-9_]", "_") + "_" + (steps.size() - 1);
+                    }
+                    known.put(value, name);
+                    variables.put(name, path);
+                }
+            });
+            candidates.add(variables);
+        }
+        for (int i = 0; i < steps.size(); i++) {
+            Map<String, String> extract = steps.get(i).extract();
+            candidates.get(i).forEach((name, path) -> {
+                if (used.contains(name)) {
+                    extract.put(name, path);
+                }
+            });
+        }
+        return new ProtocolScript(flow, new LinkedHashMap<>(parameters), steps);
+    }
+
+    /**
+     * Reads a script saved with {@link #save(Path)}.
+     *
+     * @param file the script file.
+     * @return the script.
+     */
+    @SuppressWarnings("unchecked")
+    public static ProtocolScript load(Path file) {
+        Map<String, Object> json;
+        try {
+            json = JSON.toType(Files.readString(file, StandardCharsets.UTF_8), Json.MAP_TYPE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the protocol script " + file, e);
+        }
+        List<Step> steps = new ArrayList<>();
+        for (Object item : (List<?>) json.get("steps")) {
+            Map<String, Object> step = (Map<String, Object>) item;
+            steps.add(new Step((String) step.get("name"), (String) step.get("method"), (String) step.get("url"),
+                    (Map<String, String>) step.getOrDefault("headers", Map.of()), (String) step.get("body"),
+                    ((Number) step.get("status")).intValue(), (Map<String, String>) step.getOrDefault("extract", Map.of())));
+        }
+        return new ProtocolScript((String) json.get("flow"),
+                (Map<String, String>) json.getOrDefault("parameters", Map.of()), steps);
+    }
+
+    /**
+     * Writes the script as indented JSON.
+     *
+     * @param file the file to write.
+     */
+    public void save(Path file) {
+        List<Map<String, Object>> stepsJson = new ArrayList<>();
+        for (Step step : steps) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("name", step.name());
+            json.put("method", step.method());
+            json.put("url", step.url());
+            json.put("headers", step.headers());
+            if (step.body() != null) {
+                json.put("body", step.body());
+            }
+            json.put("status", step.status());
+            if (!step.extract().isEmpty()) {
+                json.put("extract", step.extract());
+            }
+            stepsJson.add(json);
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("flow", flow);
+        json.put("parameters", parameters);
+        json.put("steps", stepsJson);
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+                 JsonOutput out = JSON.newOutput(writer)) {
+                out.setPrettyPrint(true).write(json);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the protocol script " + file, e);
+        }
+    }
+
+    /**
+     * Retrieves the name of the flow the script was recorded from.
+     *
+     * @return the name of the flow.
+     */
+    public String getFlow() {
+        return flow;
+    }
+
+    /**
+     * Retrieves the parameters of the script with their recorded values.
+     *
+     * @return the default value of every parameter.
+     */
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Retrieves the calls of the script in order.
+     *
+     * @return the steps.
+     */
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Replaces the {@code ${name}} references in a text with the values of the variables.
+     *
+     * @param text      the text, possibly null.
+     * @param variables the values of the variables by name.
+     * @return the text with every reference replaced.
+     * @throws IllegalStateException if a referenced variable has no value.
+     */
+    public static String resolve(String text, Map<String, String> variables) {
+        if (text == null || text.indexOf('$') < 0) {
+            return text;
+        }
+        Matcher matcher = VARIABLE.matcher(text);
+        StringBuilder resolved = new StringBuilder();
+        while (matcher.find()) {
+            String value = variables.get(matcher.group(1));
+            if (value == null) {
+                throw new IllegalStateException("No value for ${" + matcher.group(1) + "}");
+            }
+            matcher.appendReplacement(resolved, Matcher.quoteReplacement(value));
+        }
+        matcher.appendTail(resolved);
+        return resolved.toString();
+    }
+
+    /**
+     * Reads the value at a JSON path like {@code data.0.id} from a parsed JSON document.
+     *
+     * @param json the parsed document.
+     * @param path the path, with list indices as numbers.
+     * @return the value as text, or null if there is none.
+     */
+    public static String extract(Object json, String path) {
+        Object current = json;
+        for (String key : path.split("\\.")) {
+            if (current instanceof Map<?, ?> map) {
+                current = map.get(key);
+            } else if (current instanceof List<?> list && key.chars().allMatch(Character::isDigit)
+                    && Integer.parseInt(key) < list.size()) {
+                current = list.get(Integer.parseInt(key));
+            } else {
+                return null;
+            }
+        }
+        return current == null || current instanceof Map || current instanceof List ? null : String.valueOf(current);
+    }
+
+    private static String substitute(String text, List<String> values, Map<String, String> known, Set<String> used) {
+        String result = text;
+        for (String value : values) {
+            if (result.contains(value)) {
+                String name = known.get(value);
+                result = result.replace(value, "${" + name + "}");
+                used.add(name);
+            }
+        }
+        return result;
+    }
+
+    private static void flatten(String path, Object json, Map<String, String> values) {
+        if (json instanceof Map<?, ?> map) {
+            map.forEach((key, value) -> flatten(path.isEmpty() ? String.valueOf(key) : path + "." + key, value, values));
+        } else if (json instanceof List<?> list) {
+            for (int i = 0; i < list.size(); i++) {
+                flatten(path.isEmpty() ? String.valueOf(i) : path + "." + i, list.get(i), values);
+            }
+        } else if (json instanceof String text && !path.isEmpty()) {
+            values.put(path, text);
+        }
+    }
+
+    private static String variableName(String path, int step) {
+        String[] keys = path.split("\\.");
+        String last = keys[keys.length - 1];
+        if (last.chars().allMatch(Character::isDigit) && keys.length > 1) {
+            last = keys[keys.length - 2];
+        }
+        return last.replaceAll("[^A-Za-z0-9_]", "_") + "_" + step;
+    }
+
+    private static String pathOf(String url) {
+        int scheme = url.indexOf("://");
+        int slash = url.indexOf('/', scheme < 0 ? 0 : scheme + 3);
+        String path = slash < 0 ? "/" : url.substring(slash);
+        int query = path.indexOf('?');
+        return query < 0 ? path : path.substring(0, query);
+    }
+
+}
@@ -0,0 +1,70 @@
+package load;
+
+import basePage.PageContext;
+import org.openqa.selenium.WebDriver;
+import pages.HomePage;
+import pages.ProductPage;
+import pages.ProfilePage;
+
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Scenario is a user flow a virtual user of the {@link LoadRunner} can run. Every scenario is
+ * one of the page object flows of the functional suite, started on the home page.
+ */
+public enum Scenario {
+
+    /**
+     * Adds products to the cart and checks out, as in {@link ProductPage#performCartTest()}.
+     */
+    CART(true, context -> context.page(ProductPage.class).performCartTest()),
+
+    /**
+     * Adds a product to the favorites and checks the profile, as in {@link ProfilePage#performWishlistTest()}.
+     */
+    WISHLIST(true, context -> context.page(ProfilePage.class).performWishlistTest()),
+
+    /**
+     * Filters the product list by category, as in {@link HomePage#performCategoryTest()}.
+     */
+    CATEGORY(false, context -> context.page(HomePage.class).performCategoryTest());
+
+    private final boolean startsAuthenticated;
+    private final Consumer<PageContext> flow;
+
+    Scenario(boolean startsAuthenticated, Consumer<PageContext> flow) {
+        this.startsAuthenticated = startsAuthenticated;
+        this.flow = flow;
+    }
+
+    /**
+     * Finds a scenario by its name, ignoring case.
+     *
+     * @param name the name of the scenario.
+     * @return the scenario.
+     */
+    public static Scenario of(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Tells whether the scenario starts with a logged-in customer, like its functional test.
+     *
+     * @return true if the browser should start authenticated.
+     */
+    public boolean startsAuthenticated() {
+        return startsAuthenticated;
+    }
+
+    /**
+     * Runs the flow with fresh page objects in a browser that is already on the home page.
+     *
+     * @param driver the driver of the virtual user's browser.
+     */
+    public void run(WebDriver driver) {
+        PageContext.release(driver);
+        flow.accept(PageContext.of(driver));
+    }
+
+}
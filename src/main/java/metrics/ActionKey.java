@@ -0,0 +1,12 @@
+package metrics;
+
+/**
+ * ActionKey identifies what a latency measurement belongs to.
+ *
+ * @param page    the simple name of the page object class, or "-" outside of page objects.
+ * @param method  the page object method that was running, or "-" outside of page objects.
+ * @param action  the BasePage helper or WebDriver command that was measured.
+ * @param locator the locator the action worked on, or "-" if there was none.
+ */
+public record ActionKey(String page, String method, String action, String locator) {
+}
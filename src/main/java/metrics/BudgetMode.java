@@ -0,0 +1,35 @@
+package metrics;
+
+import java.util.Locale;
+
+/**
+ * BudgetMode decides what happens when a page exceeds its performance budget. The mode is selected
+ * with the {@code perf.budgets} system property and defaults to {@link #WARN}.
+ */
+public enum BudgetMode {
+
+    /**
+     * Budgets are not checked.
+     */
+    OFF,
+
+    /**
+     * Exceeded budgets are printed, the test still passes.
+     */
+    WARN,
+
+    /**
+     * Exceeded budgets are printed and fail the test once it finished, after all of its steps ran.
+     */
+    SOFT_FAIL;
+
+    /**
+     * Retrieves the mode selected for the current run.
+     *
+     * @return the selected budget mode.
+     */
+    public static BudgetMode current() {
+        return valueOf(System.getProperty("perf.budgets", "warn").trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+
+}
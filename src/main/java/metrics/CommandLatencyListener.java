@@ -0,0 +1,58 @@
+package metrics;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * CommandLatencyListener measures every call made through a decorated WebDriver, including
+ * calls on the elements, navigation and options objects it returns. Each command is tagged with
+ * the page object action running on the calling thread, so slow commands can be traced back to
+ * the page method and locator that issued them.
+ */
+public class CommandLatencyListener implements WebDriverListener {
+
+    /**
+     * Start times of the commands in progress on the current thread.
+     */
+    private final ThreadLocal<Deque<Long>> startTimes = ThreadLocal.withInitial(ArrayDeque::new);
+
+    @Override
+    public void beforeAnyCall(Object target, Method method, Object[] args) {
+        startTimes.get().push(System.nanoTime());
+    }
+
+    @Override
+    public void afterAnyCall(Object target, Method method, Object[] args, Object result) {
+        recordCommand(method, args);
+    }
+
+    @Override
+    public void onError(Object target, Method method, Object[] args, InvocationTargetException e) {
+        recordCommand(method, args);
+    }
+
+    private void recordCommand(Method method, Object[] args) {
+        Long start = startTimes.get().poll();
+        if (start == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        ActionKey action = LatencyRecorder.currentAction();
+        String command = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        String locator = action != null ? action.locator() : "-";
+        if (args != null && args.length > 0 && args[0] instanceof By) {
+            locator = args[0].toString();
+        }
+        LatencyRecorder.record(new ActionKey(
+                action != null ? action.page() : "-",
+                action != null ? action.method() : "-",
+                command,
+                locator), nanos);
+    }
+
+}
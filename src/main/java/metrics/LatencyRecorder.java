@@ -0,0 +1,166 @@
+package metrics;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * LatencyRecorder collects latency histograms for page object helpers and WebDriver commands,
+ * tagged by page class, page method, action and locator. Recording is switched on with the
+ * {@code metrics} system property; the collected percentiles are exported as JSON and CSV.
+ */
+public final class LatencyRecorder {
+
+    private static final boolean ENABLED = Boolean.getBoolean("metrics");
+
+    private static final Map<ActionKey, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    /**
+     * The page object action running on the current thread, used to tag WebDriver commands.
+     */
+    private static final ThreadLocal<ActionKey> CURRENT_ACTION = new ThreadLocal<>();
+
+    private LatencyRecorder() {
+    }
+
+    /**
+     * Checks whether latencies are recorded in this run.
+     *
+     * @return true if the {@code metrics} system property is set to true.
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param key   what the latency belongs to.
+     * @param nanos the latency in nanoseconds.
+     */
+    public static void record(ActionKey key, long nanos) {
+        HISTOGRAMS.computeIfAbsent(key, k -> new LatencyHistogram()).recordNanos(nanos);
+    }
+
+    /**
+     * Marks the given page object action as running on the current thread.
+     *
+     * @param key the action that starts.
+     * @return the action that was running before, to be passed to {@link #exitAction(ActionKey)}.
+     */
+    public static ActionKey enterAction(ActionKey key) {
+        ActionKey previous = CURRENT_ACTION.get();
+        CURRENT_ACTION.set(key);
+        return previous;
+    }
+
+    /**
+     * Restores the action that was running before the current one started.
+     *
+     * @param previous the action returned by {@link #enterAction(ActionKey)}.
+     */
+    public static void exitAction(ActionKey previous) {
+        if (previous == null) {
+            CURRENT_ACTION.remove();
+        } else {
+            CURRENT_ACTION.set(previous);
+        }
+    }
+
+    /**
+     * Retrieves the page object action running on the current thread.
+     *
+     * @return the running action, or null if no page object action is running.
+     */
+    public static ActionKey currentAction() {
+        return CURRENT_ACTION.get();
+    }
+
+    /**
+     * Retrieves a snapshot of all histograms.
+     *
+     * @return the histograms by action.
+     */
+    public static Map<ActionKey, LatencyHistogram> histograms() {
+        return Map.copyOf(HISTOGRAMS);
+    }
+
+    /**
+     * Writes the percentiles of every action to {@code latency.json} and {@code latency.csv}
+     * in the given directory. Nothing is written if no latency was recorded.
+     *
+     * @param directory the directory to write the reports to.
+     */
+    public static void export(Path directory) {
+        if (HISTOGRAMS.isEmpty()) {
+            return;
+        }
+        List<Map<String, Object>> rows = rows();
+        StringBuilder csv = new StringBuilder("page,method,action,locator,count,mean_ms,p50_ms,p95_ms,p99_ms,max_ms\n");
+        for (Map<String, Object> row : rows) {
+            List<String> cells = new ArrayList<>();
+            for (Object value : row.values()) {
+                cells.add(csvCell(String.valueOf(value)));
+            }
+            csv.append(String.join(",", cells)).append('\n');
+        }
+        try {
+            Files.createDirectories(directory);
+            Files.writeString(directory.resolve("latency.json"), new Json().toJson(rows), StandardCharsets.UTF_8);
+            Files.writeString(directory.resolve("latency.csv"), csv, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write latency reports to " + directory, e);
+        }
+    }
+
+    /**
+     * Builds one report row per action, slowest p99 first.
+     *
+     * @return the report rows.
+     */
+    private static List<Map<String, Object>> rows() {
+        List<Map.Entry<ActionKey, LatencyHistogram>> entries = new ArrayList<>(HISTOGRAMS.entrySet());
+        entries.sort(Comparator.comparingLong(
+                (Map.Entry<ActionKey, LatencyHistogram> entry) -> entry.getValue().getPercentileMicros(99)).reversed());
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Map.Entry<ActionKey, LatencyHistogram> entry : entries) {
+            ActionKey key = entry.getKey();
+            LatencyHistogram histogram = entry.getValue();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("page", key.page());
+            row.put("method", key.method());
+            row.put("action", key.action());
+            row.put("locator", key.locator());
+            row.put("count", histogram.getCount());
+            row.put("mean_ms", millis(histogram.getMeanMicros()));
+            row.put("p50_ms", millis(histogram.getPercentileMicros(50)));
+            row.put("p95_ms", millis(histogram.getPercentileMicros(95)));
+            row.put("p99_ms", millis(histogram.getPercentileMicros(99)));
+            row.put("max_ms", millis(histogram.getMaxMicros()));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static String csvCell(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,271 @@
+package metrics;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsDriver;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LocatorProfiler times every {@code findElement} and {@code findElements} call of a decorated WebDriver,
+ * and of the elements it returns, per locator, together with the number of elements in the document at
+ * the time of the lookup. At the end of the run, locators are ranked by their total and their per-call cost.
+ * <p>
+ * The first time a locator that is not an id finds an element, the element is checked for an id, a
+ * {@code data-test} attribute, a {@code data-test} or id ancestor, a {@code name} or a class combination
+ * that selects it and nothing else in the live document. Those alternatives are suggested in the report.
+ * Polling waits look elements up repeatedly, so lookups that found nothing are counted as misses.
+ * </p>
+ * Enabled with {@code -Dlocators.profile=true}; the report lists the {@code locators.profile.top} (10)
+ * most expensive locators and is written to {@code locator-profile.csv}.
+ */
+public class LocatorProfiler implements WebDriverListener {
+
+    private static final boolean ENABLED = Boolean.getBoolean("locators.profile");
+
+    private static final int TOP = Integer.getInteger("locators.profile.top", 10);
+
+    private static final String DOM_SIZE_SCRIPT = "return document.getElementsByTagName('*').length;";
+
+    /**
+     * Script returning the alternatives of {@code arguments[0]} that select exactly this element,
+     * as pairs of a kind ({@code id} or {@code css}) and a value.
+     */
+    private static final String ALTERNATIVES_SCRIPT =
+            "var element = arguments[0], found = [];"
+            + "var unique = function (css) {"
+            + "  try { var matches = document.querySelectorAll(css); return matches.length === 1 && matches[0] === element; }"
+            + "  catch (e) { return false; }"
+            + "};"
+            + "var tag = element.tagName.toLowerCase();"
+            + "var attribute = function (node, name) { var value = node.getAttribute(name); return value ? '[' + name + '=\"' + value.replace(/\"/g, '\\\\\"') + '\"]' : null; };"
+            + "if (element.id && unique('#' + CSS.escape(element.id))) { found.push(['id', element.id]); }"
+            + "var dataTest = attribute(element, 'data-test');"
+            + "if (dataTest && unique(dataTest)) { found.push(['css', dataTest]); }"
+            + "for (var parent = element.parentElement; parent && parent !== document.body; parent = parent.parentElement) {"
+            + "  var key = attribute(parent, 'data-test') || (parent.id ? '#' + CSS.escape(parent.id) : null);"
+            + "  if (key) {"
+            + "    var nested = key + ' ' + (dataTest || tag);"
+            + "    if (unique(nested)) { found.push(['css', nested]); }"
+            + "    break;"
+            + "  }"
+            + "}"
+            + "var name = attribute(element, 'name');"
+            + "if (name && unique(tag + name)) { found.push(['css', tag + name]); }"
+            + "if (element.classList.length) {"
+            + "  var classes = tag + Array.prototype.map.call(element.classList, function (c) { return '.' + CSS.escape(c); }).join('');"
+            + "  if (unique(classes)) { found.push(['css', classes]); }"
+            + "}"
+            + "return found;";
+
+    private static final Map<String, LocatorStats> STATS = new ConcurrentHashMap<>();
+
+    /**
+     * Start times of the lookups in progress on the current thread.
+     */
+    private final ThreadLocal<Deque<Long>> startTimes = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * Tells whether locator profiling is enabled for this run.
+     *
+     * @return true if the suite runs with {@code -Dlocators.profile=true}.
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    @Override
+    public void beforeAnyCall(Object target, Method method, Object[] args) {
+        if (isLookup(method, args)) {
+            startTimes.get().push(System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterAnyCall(Object target, Method method, Object[] args, Object result) {
+        if (isLookup(method, args)) {
+            record(target, (By) args[0], result);
+        }
+    }
+
+    @Override
+    public void onError(Object target, Method method, Object[] args, InvocationTargetException e) {
+        if (isLookup(method, args)) {
+            record(target, (By) args[0], null);
+        }
+    }
+
+    /**
+     * Builds the ranking of the most expensive locators, by total and by per-call cost.
+     *
+     * @return the report, one line per locator.
+     */
+    public static String report() {
+        List<Map.Entry<String, LocatorStats>> byTotal = ranked(Comparator.comparingLong(e -> e.getValue().nanos.sum()));
+        List<Map.Entry<String, LocatorStats>> byCall = ranked(Comparator.comparingDouble(e -> e.getValue().meanMillis()));
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+                "Locators by total lookup time:%n%8s %10s %8s %8s %9s  %s%n", "calls", "total ms", "mean ms", "misses", "dom nodes", "locator"));
+        byTotal.stream().limit(TOP).forEach(entry -> append(report, entry));
+        report.append(String.format(Locale.ROOT, "Locators by time per lookup:%n"));
+        byCall.stream().limit(TOP).forEach(entry -> append(report, entry));
+        return report.toString();
+    }
+
+    /**
+     * Writes every profiled locator to {@code locator-profile.csv}, most expensive in total first.
+     *
+     * @param directory the directory to write the report to.
+     */
+    public static void export(Path directory) {
+        List<Map.Entry<String, LocatorStats>> byTotal = ranked(Comparator.comparingLong(e -> e.getValue().nanos.sum()));
+        List<String> byCall = ranked(Comparator.comparingDouble(e -> e.getValue().meanMillis()))
+                .stream().map(Map.Entry::getKey).toList();
+        StringBuilder csv = new StringBuilder("locator,callers,calls,misses,total_ms,mean_ms,max_ms,mean_dom_nodes,"
+                + "max_dom_nodes,ms_per_1000_nodes,rank_total,rank_per_call,suggestions\n");
+        for (int i = 0; i < byTotal.size(); i++) {
+            String locator = byTotal.get(i).getKey();
+            LocatorStats stats = byTotal.get(i).getValue();
+            long calls = stats.calls.sum();
+            double meanNodes = calls == 0 ? 0 : (double) stats.domNodes.sum() / calls;
+            csv.append(String.format(Locale.ROOT, "%s,%s,%d,%d,%.1f,%.3f,%.1f,%.0f,%d,%.3f,%d,%d,%s%n",
+                    quote(locator), quote(String.join(" ", stats.callers)), calls, stats.misses.sum(),
+                    stats.nanos.sum() / 1e6, stats.meanMillis(), stats.maxNanos.get() / 1e6, meanNodes,
+                    stats.maxDomNodes.get(), meanNodes == 0 ? 0 : stats.meanMillis() * 1000 / meanNodes,
+                    i + 1, byCall.indexOf(locator) + 1, quote(String.join(" | ", stats.alternatives))));
+        }
+        try {
+            Files.createDirectories(directory);
+            Files.writeString(directory.resolve("locator-profile.csv"), csv, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the locator profile to " + directory, e);
+        }
+    }
+
+    private void record(Object target, By locator, Object result) {
+        Long start = startTimes.get().poll();
+        if (start == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        boolean found = result instanceof WebElement || result instanceof List<?> list && !list.isEmpty();
+        WebDriver driver = target instanceof WebDriver webDriver ? webDriver
+                : target instanceof WrapsDriver wraps ? wraps.getWrappedDriver() : null;
+        LocatorStats stats = STATS.computeIfAbsent(locator.toString(), key -> new LocatorStats());
+        stats.calls.increment();
+        stats.nanos.add(nanos);
+        stats.maxNanos.accumulate(nanos);
+        if (!found) {
+            stats.misses.increment();
+        }
+        if (stats.callers.size() < 5) {
+            stats.callers.add(caller());
+        }
+        if (driver instanceof JavascriptExecutor executor) {
+            try {
+                long nodes = ((Number) executor.executeScript(DOM_SIZE_SCRIPT)).longValue();
+                stats.domNodes.add(nodes);
+                stats.maxDomNodes.accumulate(nodes);
+                if (result instanceof WebElement element && !locator.toString().startsWith("By.id:")
+                        && stats.alternativesChecked.compareAndSet(false, true)) {
+                    stats.alternatives = alternatives(executor, element);
+                }
+            } catch (WebDriverException | ClassCastException e) {
+                // The page navigated away while profiling; the lookup itself is still recorded.
+            }
+        }
+    }
+
+    /**
+     * Finds the alternatives selecting the same element, as {@link By} descriptions.
+     */
+    private static List<String> alternatives(JavascriptExecutor executor, WebElement element) {
+        List<String> alternatives = new ArrayList<>();
+        for (Object item : (List<?>) executor.executeScript(ALTERNATIVES_SCRIPT, element)) {
+            List<?> pair = (List<?>) item;
+            String value = String.valueOf(pair.get(1));
+            alternatives.add(("id".equals(pair.get(0)) ? By.id(value) : By.cssSelector(value)).toString());
+        }
+        return alternatives;
+    }
+
+    /**
+     * Finds the page object method that made the lookup.
+     */
+    private static String caller() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith("pages."))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring("pages.".length()) + "." + frame.getMethodName())
+                .orElse("-"));
+    }
+
+    private static boolean isLookup(Method method, Object[] args) {
+        return (method.getName().equals("findElement") || method.getName().equals("findElements"))
+                && args != null && args.length == 1 && args[0] instanceof By;
+    }
+
+    private static List<Map.Entry<String, LocatorStats>> ranked(Comparator<Map.Entry<String, LocatorStats>> cost) {
+        List<Map.Entry<String, LocatorStats>> entries = new ArrayList<>(STATS.entrySet());
+        entries.sort(cost.reversed());
+        return entries;
+    }
+
+    private static void append(StringBuilder report, Map.Entry<String, LocatorStats> entry) {
+        LocatorStats stats = entry.getValue();
+        long calls = stats.calls.sum();
+        report.append(String.format(Locale.ROOT, "%8d %10.1f %8.3f %8d %9.0f  %s%n", calls, stats.nanos.sum() / 1e6,
+                stats.meanMillis(), stats.misses.sum(), calls == 0 ? 0.0 : (double) stats.domNodes.sum() / calls, entry.getKey()));
+        for (String suggestion : stats.alternatives) {
+            report.append(String.format(Locale.ROOT, "%58s try %s%n", "", suggestion));
+        }
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * The lookups of one locator across all sessions.
+     */
+    private static final class LocatorStats {
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder domNodes = new LongAdder();
+        private final LongAccumulator maxDomNodes = new LongAccumulator(Math::max, 0);
+        private final Set<String> callers = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean alternativesChecked = new AtomicBoolean();
+        private volatile List<String> alternatives = List.of();
+
+        private double meanMillis() {
+            long calls = this.calls.sum();
+            return calls == 0 ? 0 : nanos.sum() / 1e6 / calls;
+        }
+
+    }
+
+}
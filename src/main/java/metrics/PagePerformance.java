@@ -0,0 +1,309 @@
+package metrics;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * PagePerformance captures front-end performance metrics after page object steps and checks them
+ * against per-page budgets. Each capture reads, from the browser's Performance APIs:
+ * <ul>
+ *     <li>the Navigation Timing and Largest Contentful Paint of the document, on its first capture,</li>
+ *     <li>the count, transferred bytes and duration of the resources fetched since the previous capture,</li>
+ *     <li>the layout shift (CLS) and long-task time accumulated since the previous capture.</li>
+ * </ul>
+ * Capturing is switched on with {@code -Dperf=true}. Budgets are read from {@code perf-budgets.properties}
+ * on the classpath, or {@code -Dperf.budgets.file}, and enforced according to the {@link BudgetMode}.
+ * <p>
+ * The values of every page and step are kept across runs in {@code .perf-history/page-performance.tsv}
+ * (or {@code -Dperf.history.file}), and the report compares this run's median with the earlier runs'.
+ * </p>
+ */
+public final class PagePerformance {
+
+    private static final boolean ENABLED = Boolean.getBoolean("perf");
+
+    /**
+     * The metrics in report order.
+     */
+    private static final List<String> METRICS = List.of("ttfb", "domContentLoaded", "load", "lcp", "cls",
+            "longTaskTime", "resourceCount", "transferBytes", "resourceTime");
+
+    /**
+     * How many of the most recent values are kept per page, step and metric.
+     */
+    private static final int WINDOW = 200;
+
+    private static final Path HISTORY_FILE =
+            Path.of(System.getProperty("perf.history.file", ".perf-history/page-performance.tsv"));
+
+    /**
+     * Installs PerformanceObservers once per document, then returns the metrics since the last call.
+     * Buffered observers also receive the entries recorded before they were installed.
+     */
+    private static final String CAPTURE_SCRIPT = ""
+            + "var s = window.__pagePerformance;"
+            + "if (!s) {"
+            + "  s = window.__pagePerformance = {mark: 0, first: true, lcp: 0, cls: 0, longTask: 0,"
+            + "      clsAtMark: 0, longTaskAtMark: 0, observers: []};"
+            + "  try { performance.setResourceTimingBufferSize(5000); } catch (e) {}"
+            + "  var observe = function (type, handle) {"
+            + "    try {"
+            + "      var observer = new PerformanceObserver(function (list) { list.getEntries().forEach(handle); });"
+            + "      observer.observe({type: type, buffered: true});"
+            + "      s.observers.push({observer: observer, handle: handle});"
+            + "    } catch (e) {}"
+            + "  };"
+            + "  observe('largest-contentful-paint', function (e) { s.lcp = Math.max(s.lcp, e.startTime); });"
+            + "  observe('layout-shift', function (e) { if (!e.hadRecentInput) { s.cls += e.value; } });"
+            + "  observe('longtask', function (e) { s.longTask += e.duration; });"
+            + "}"
+            + "s.observers.forEach(function (o) { o.observer.takeRecords().forEach(o.handle); });"
+            + "var now = performance.now();"
+            + "var result = {};"
+            + "if (s.first) {"
+            + "  var nav = performance.getEntriesByType('navigation')[0];"
+            + "  if (nav) {"
+            + "    result.ttfb = nav.responseStart - nav.startTime;"
+            + "    result.domContentLoaded = nav.domContentLoadedEventEnd - nav.startTime;"
+            + "    if (nav.loadEventEnd > 0) { result.load = nav.loadEventEnd - nav.startTime; }"
+            + "  }"
+            + "  if (s.lcp > 0) { result.lcp = s.lcp; }"
+            + "}"
+            + "var count = 0, bytes = 0, end = s.mark;"
+            + "performance.getEntriesByType('resource').forEach(function (r) {"
+            + "  if (r.startTime >= s.mark) { count++; bytes += r.transferSize || 0; end = Math.max(end, r.responseEnd); }"
+            + "});"
+            + "result.resourceCount = count;"
+            + "result.transferBytes = bytes;"
+            + "result.resourceTime = end - s.mark;"
+            + "result.cls = s.cls - s.clsAtMark;"
+            + "result.longTaskTime = s.longTask - s.longTaskAtMark;"
+            + "s.mark = now; s.clsAtMark = s.cls; s.longTaskAtMark = s.longTask; s.first = false;"
+            + "return result;";
+
+    private static final Properties BUDGETS = loadBudgets();
+
+    private static final Map<String, Map<String, double[]>> PREVIOUS = loadHistory();
+
+    /**
+     * The values captured in this run, by page and step, then by metric.
+     */
+    private static final Map<String, Map<String, Queue<Double>>> CAPTURED = new ConcurrentHashMap<>();
+
+    /**
+     * The budgets exceeded by the test running on the current thread.
+     */
+    private static final ThreadLocal<List<String>> BREACHES = ThreadLocal.withInitial(ArrayList::new);
+
+    private PagePerformance() {
+    }
+
+    /**
+     * Checks whether page performance is captured in this run.
+     *
+     * @return true if the {@code perf} system property is set to true.
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Captures the metrics since the previous capture of the current document and checks them against
+     * the budgets of the page and step. Does nothing if capturing is disabled.
+     *
+     * @param driver the driver of the session.
+     * @param page   the name of the page, usually the page object class.
+     * @param step   the step that just finished.
+     */
+    public static void capture(WebDriver driver, String page, String step) {
+        if (!ENABLED) {
+            return;
+        }
+        Map<?, ?> values;
+        try {
+            values = (Map<?, ?>) ((JavascriptExecutor) driver).executeScript(CAPTURE_SCRIPT);
+        } catch (WebDriverException e) {
+            System.out.println("Could not capture the performance of " + page + "." + step + ": " + e.getMessage());
+            return;
+        }
+        String key = page + "." + step;
+        BudgetMode mode = BudgetMode.current();
+        for (String metric : METRICS) {
+            Object value = values.get(metric);
+            if (!(value instanceof Number number)) {
+                continue;
+            }
+            double measured = number.doubleValue();
+            CAPTURED.computeIfAbsent(key, k -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(metric, k -> new ConcurrentLinkedQueue<>()).add(measured);
+            Double budget = budget(page, step, metric);
+            if (mode != BudgetMode.OFF && budget != null && measured > budget) {
+                String breach = key + " " + metric + " " + format(measured) + " exceeds its budget of " + format(budget);
+                System.out.println("Performance budget exceeded: " + breach);
+                BREACHES.get().add(breach);
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the budgets exceeded on the current thread since the last call.
+     *
+     * @return the exceeded budgets, in the order they were exceeded.
+     */
+    public static List<String> drainBreaches() {
+        List<String> breaches = new ArrayList<>(BREACHES.get());
+        BREACHES.remove();
+        return breaches;
+    }
+
+    /**
+     * Finds the budget of a metric, from the most specific key: page and step, page, step, then any page.
+     *
+     * @param page   the name of the page.
+     * @param step   the step.
+     * @param metric the metric.
+     * @return the budget, or null if the metric has none.
+     */
+    public static Double budget(String page, String step, String metric) {
+        for (String key : List.of(page + "." + step, page + ".*", "*." + step, "*.*")) {
+            String value = BUDGETS.getProperty(key + "." + metric);
+            if (value != null) {
+                return Double.valueOf(value.trim());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes {@code page-performance.csv} to the given directory, with the count, median, p95 and maximum
+     * of every metric of every page and step, the median of earlier runs and the budget. Then adds this
+     * run's values to the history. Nothing is written if nothing was captured.
+     *
+     * @param directory the directory to write the report to.
+     */
+    public static void export(Path directory) {
+        if (CAPTURED.isEmpty()) {
+            return;
+        }
+        StringBuilder csv = new StringBuilder("page,step,metric,count,p50,p95,max,previous_p50,budget\n");
+        new TreeMap<>(CAPTURED).forEach((key, metrics) -> {
+            int dot = key.indexOf('.');
+            for (String metric : METRICS) {
+                Queue<Double> values = metrics.get(metric);
+                if (values == null || values.isEmpty()) {
+                    continue;
+                }
+                double[] sorted = values.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+                double[] previous = PREVIOUS.getOrDefault(key, Map.of()).get(metric);
+                Double budget = budget(key.substring(0, dot), key.substring(dot + 1), metric);
+                csv.append(String.join(",", key.substring(0, dot), key.substring(dot + 1), metric,
+                        String.valueOf(sorted.length), format(percentile(sorted, 50)), format(percentile(sorted, 95)),
+                        format(sorted[sorted.length - 1]),
+                        previous == null ? "" : format(percentile(sorted(previous), 50)),
+                        budget == null ? "" : format(budget))).append('\n');
+            }
+        });
+        try {
+            Files.createDirectories(directory);
+            Files.writeString(directory.resolve("page-performance.csv"), csv, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the page performance report to " + directory, e);
+        }
+        saveHistory();
+    }
+
+    private static void saveHistory() {
+        Map<String, List<Double>> merged = new TreeMap<>();
+        PREVIOUS.forEach((key, metrics) -> metrics.forEach((metric, values) ->
+                merged.put(key + "\t" + metric, new ArrayList<>(Arrays.stream(values).boxed().toList()))));
+        CAPTURED.forEach((key, metrics) -> metrics.forEach((metric, values) ->
+                merged.computeIfAbsent(key + "\t" + metric, k -> new ArrayList<>()).addAll(values)));
+        List<String> lines = new ArrayList<>();
+        merged.forEach((key, values) -> {
+            List<String> cells = new ArrayList<>();
+            values.subList(Math.max(0, values.size() - WINDOW), values.size()).forEach(value -> cells.add(format(value)));
+            lines.add(key + "\t" + String.join(",", cells));
+        });
+        try {
+            Path directory = HISTORY_FILE.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, "page-performance", ".tmp");
+            Files.write(temporary, lines, StandardCharsets.UTF_8);
+            Files.move(temporary, HISTORY_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the page performance history to " + HISTORY_FILE, e);
+        }
+    }
+
+    private static Map<String, Map<String, double[]>> loadHistory() {
+        Map<String, Map<String, double[]>> history = new ConcurrentHashMap<>();
+        if (!Files.isRegularFile(HISTORY_FILE)) {
+            return history;
+        }
+        try {
+            for (String line : Files.readAllLines(HISTORY_FILE, StandardCharsets.UTF_8)) {
+                String[] cells = line.split("\t");
+                if (cells.length == 3 && !cells[2].isEmpty()) {
+                    history.computeIfAbsent(cells[0], k -> new ConcurrentHashMap<>())
+                            .put(cells[1], Arrays.stream(cells[2].split(",")).mapToDouble(Double::parseDouble).toArray());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the page performance history from " + HISTORY_FILE, e);
+        }
+        return history;
+    }
+
+    private static Properties loadBudgets() {
+        Properties budgets = new Properties();
+        String file = System.getProperty("perf.budgets.file");
+        try (InputStream in = file != null ? Files.newInputStream(Path.of(file))
+                : PagePerformance.class.getClassLoader().getResourceAsStream("perf-budgets.properties")) {
+            if (in != null) {
+                try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                    budgets.load(reader);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the performance budgets", e);
+        }
+        return budgets;
+    }
+
+    private static double[] sorted(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private static double percentile(double[] sorted, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.format(Locale.ROOT, "%.3f", value);
+    }
+
+}
@@ -0,0 +1,137 @@
+package mirror;
+
+import org.openqa.selenium.WebDriver;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mirror records the shop's HTTP traffic during a live run and replays it from a local server,
+ * so the suite can run without the network and without the latency of the remote backend.
+ * <ul>
+ *     <li>{@code -Dmirror.mode=record} records every exchange of the browsers and of {@code ShopApi}.</li>
+ *     <li>{@code -Dmirror.mode=replay} serves the recording on {@code 127.0.0.1}, starting at
+ *     {@code -Dmirror.port} (8089 by default).</li>
+ * </ul>
+ * The recording is kept in {@code -Dmirror.dir} ({@code mirror} by default). The URL the tests open
+ * is set with the {@code base.url} system property; in replay it is mapped to its local origin.
+ */
+public final class Mirror {
+
+    private static final String DEFAULT_BASE_URL = "https://practicesoftwaretesting.com";
+
+    private static final Path DIRECTORY = Path.of(System.getProperty("mirror.dir", "mirror"));
+
+    private static final int PORT = Integer.getInteger("mirror.port", 8089);
+
+    private static final MirrorMode MODE = MirrorMode.current();
+
+    private static volatile Recording recording;
+
+    private static ReplayServer server;
+
+    private Mirror() {
+    }
+
+    /**
+     * Starts recording, or starts the replay server, depending on the {@link MirrorMode}.
+     */
+    public static synchronized void start() {
+        if (MODE == MirrorMode.RECORD && recording == null) {
+            recording = Recording.create(DIRECTORY);
+        } else if (MODE == MirrorMode.REPLAY && server == null) {
+            server = ReplayServer.start(replayed());
+        }
+    }
+
+    /**
+     * Saves the recording, or stops the replay server, depending on the {@link MirrorMode}.
+     * Must be called after every recorded browser session has been quit.
+     */
+    public static synchronized void stop() {
+        if (MODE == MirrorMode.RECORD && recording != null) {
+            recording.save(Recording.origin(URI.create(System.getProperty("base.url", DEFAULT_BASE_URL))), PORT);
+            recording = null;
+        } else if (MODE == MirrorMode.REPLAY && server != null) {
+            server.stop();
+            server = null;
+        }
+    }
+
+    /**
+     * Retrieves the URL the tests open: the {@code base.url} system property, or the shop's
+     * public URL, mapped to the replay server in replay mode.
+     *
+     * @return the base URL.
+     */
+    public static String baseUrl() {
+        return resolve(System.getProperty("base.url", DEFAULT_BASE_URL));
+    }
+
+    /**
+     * Maps a URL of the shop to the replay server in replay mode.
+     *
+     * @param url the URL to map.
+     * @return the URL on the replay server in replay mode, the given URL otherwise.
+     * @throws IllegalStateException if the origin of the URL was not recorded.
+     */
+    public static String resolve(String url) {
+        if (MODE != MirrorMode.REPLAY) {
+            return url;
+        }
+        URI uri = URI.create(url);
+        String origin = Recording.origin(uri);
+        Integer port = replayed().ports().get(origin);
+        if (port == null) {
+            throw new IllegalStateException(origin + " was not recorded in " + DIRECTORY.toAbsolutePath());
+        }
+        return Recording.localOrigin(port) + url.substring(origin.length());
+    }
+
+    /**
+     * Starts recording the traffic of a new browser session, while recording.
+     *
+     * @param driver the driver of the session.
+     */
+    public static void attach(WebDriver driver) {
+        Recording current = recording;
+        if (MODE == MirrorMode.RECORD && current != null) {
+            TrafficRecorder.attach(driver, current);
+        }
+    }
+
+    /**
+     * Records an exchange made outside of the browser, while recording.
+     *
+     * @param method      the HTTP method of the request.
+     * @param url         the URL of the request.
+     * @param requestBody the request body, or null if it had none.
+     * @param status      the status code of the response.
+     * @param contentType the content type of the response, or null if it had none.
+     * @param headers     the response headers by name.
+     * @param body        the response body.
+     */
+    public static void record(String method, String url, String requestBody, int status, String contentType,
+                              Map<String, List<String>> headers, String body) {
+        Recording current = recording;
+        if (MODE == MirrorMode.RECORD && current != null) {
+            current.add(method, url, requestBody, status, contentType, headers, body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Retrieves the recording that is replayed, loading it on first use.
+     *
+     * @return the replayed recording.
+     */
+    private static synchronized Recording replayed() {
+        if (recording == null) {
+            recording = Recording.load(DIRECTORY);
+        }
+        return recording;
+    }
+
+}
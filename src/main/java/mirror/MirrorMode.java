@@ -0,0 +1,35 @@
+package mirror;
+
+import java.util.Locale;
+
+/**
+ * MirrorMode selects whether the shop is used live, recorded or replayed from a recording.
+ * The mode is selected with the {@code mirror.mode} system property and defaults to {@link #OFF}.
+ */
+public enum MirrorMode {
+
+    /**
+     * The tests use the live shop and nothing is recorded.
+     */
+    OFF,
+
+    /**
+     * The tests use the live shop and every HTTP exchange of the browser and the API client is recorded.
+     */
+    RECORD,
+
+    /**
+     * The tests use a local server that answers from the recording, without any network access.
+     */
+    REPLAY;
+
+    /**
+     * Retrieves the mode selected for the current run.
+     *
+     * @return the selected mirror mode.
+     */
+    public static MirrorMode current() {
+        return valueOf(System.getProperty("mirror.mode", "off").trim().toUpperCase(Locale.ROOT));
+    }
+
+}
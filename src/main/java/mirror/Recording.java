@@ -0,0 +1,420 @@
+package mirror;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Recording keeps the HTTP exchanges of a recorded run on disk: an index with one line per exchange,
+ * the local port assigned to every recorded origin, and the response bodies, stored once per content.
+ * Response headers such as {@code Location}, {@code Set-Cookie} and {@code Cache-Control} are kept in
+ * the index, except for the hop-by-hop headers and the ones the replay server sets itself.
+ * <p>
+ * For replay, the index is loaded into a hash map keyed by origin, method, path and request body,
+ * so a request is matched with a single lookup, while the bodies stay on disk until they are served.
+ * When a request was recorded several times, the responses are served in the recorded order and
+ * the last one is repeated.
+ * </p>
+ */
+public final class Recording {
+
+    private static final String INDEX_FILE = "index.tsv";
+    private static final String ORIGINS_FILE = "origins.tsv";
+    private static final String BODIES_DIRECTORY = "bodies";
+    private static final String NO_VALUE = "-";
+
+    /**
+     * Response headers that are not recorded: hop-by-hop headers, headers describing the encoding of the
+     * body as it was transferred, and headers the replay server sets itself.
+     */
+    private static final Set<String> SKIPPED_HEADERS = Set.of("connection", "keep-alive", "proxy-authenticate",
+            "proxy-authorization", "proxy-connection", "te", "trailer", "transfer-encoding", "upgrade",
+            "content-length", "content-encoding", "content-type", "date", "vary");
+
+    private static final Json JSON = new Json();
+
+    private final Path directory;
+
+    /**
+     * The recorded exchanges by request key, in the order they were recorded.
+     */
+    private final Map<String, List<Exchange>> exchanges = new ConcurrentHashMap<>();
+
+    /**
+     * The position of the next response to serve, by request key.
+     */
+    private final Map<String, AtomicInteger> cursors = new ConcurrentHashMap<>();
+
+    /**
+     * The local port that replays each recorded origin.
+     */
+    private final Map<String, Integer> ports = new LinkedHashMap<>();
+
+    /**
+     * A recorded HTTP exchange.
+     *
+     * @param origin      the scheme, host and port the request was sent to.
+     * @param method      the HTTP method of the request.
+     * @param target      the path and query of the request.
+     * @param requestHash the hash of the request body, or "-" if it had none.
+     * @param status      the status code of the response.
+     * @param contentType the content type of the response, or "-" if it had none.
+     * @param bodyFile    the name of the file holding the response body, or "-" if it had none.
+     * @param headers     the other recorded response headers by name; repeated headers are separated by newlines.
+     */
+    public record Exchange(String origin, String method, String target, String requestHash,
+                           int status, String contentType, String bodyFile, Map<String, String> headers) {
+
+        private String key() {
+            return Recording.key(origin, method, target, requestHash);
+        }
+
+    }
+
+    private Recording(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Starts a new, empty recording in the given directory, removing a previous recording there.
+     *
+     * @param directory the directory of the recording.
+     * @return the new recording.
+     */
+    public static Recording create(Path directory) {
+        Path bodies = directory.resolve(BODIES_DIRECTORY);
+        try {
+            Files.deleteIfExists(directory.resolve(INDEX_FILE));
+            Files.deleteIfExists(directory.resolve(ORIGINS_FILE));
+            if (Files.isDirectory(bodies)) {
+                try (Stream<Path> files = Files.list(bodies)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        Files.delete(file);
+                    }
+                }
+            }
+            Files.createDirectories(bodies);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create a recording in " + directory, e);
+        }
+        return new Recording(directory);
+    }
+
+    /**
+     * Loads the recording saved in the given directory.
+     *
+     * @param directory the directory of the recording.
+     * @return the loaded recording.
+     * @throws IllegalStateException if the directory does not hold a recording.
+     */
+    public static Recording load(Path directory) {
+        Path index = directory.resolve(INDEX_FILE);
+        if (!Files.isRegularFile(index)) {
+            throw new IllegalStateException("No recording in " + directory.toAbsolutePath()
+                    + ", record one first with -Dmirror.mode=record");
+        }
+        Recording recording = new Recording(directory);
+        try {
+            for (String line : Files.readAllLines(directory.resolve(ORIGINS_FILE), StandardCharsets.UTF_8)) {
+                String[] cells = line.split("\t");
+                recording.ports.put(cells[0], Integer.parseInt(cells[1]));
+            }
+            for (String line : Files.readAllLines(index, StandardCharsets.UTF_8)) {
+                String[] cells = line.split("\t", -1);
+                Exchange exchange = new Exchange(cells[0], cells[1], cells[2], cells[3],
+                        Integer.parseInt(cells[4]), cells[5], cells[6],
+                        cells.length > 7 ? headers(JSON.toType(cells[7], Json.MAP_TYPE)) : Map.of());
+                recording.exchanges.computeIfAbsent(exchange.key(), key -> new ArrayList<>()).add(exchange);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load the recording in " + directory, e);
+        }
+        return recording;
+    }
+
+    /**
+     * Records an HTTP exchange. Requests to URLs that are not valid URIs are not recorded.
+     *
+     * @param method      the HTTP method of the request.
+     * @param url         the URL of the request.
+     * @param requestBody the request body, or null if it had none.
+     * @param status      the status code of the response.
+     * @param contentType the content type of the response, or null if it had none.
+     * @param headers     the response headers by name, repeated headers separated by newlines.
+     * @param body        the response body.
+     */
+    public void add(String method, String url, String requestBody, int status, String contentType,
+                    Map<?, ?> headers, byte[] body) {
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        Exchange exchange = new Exchange(origin(uri), method, target(uri), requestHash(requestBody), status,
+                contentType == null || contentType.isBlank() ? NO_VALUE : contentType,
+                body.length == 0 ? NO_VALUE : store(body), headers(headers));
+        exchanges.computeIfAbsent(exchange.key(), key -> Collections.synchronizedList(new ArrayList<>())).add(exchange);
+    }
+
+    /**
+     * Writes the index and assigns a local port to every recorded origin: the origin of the base URL
+     * gets the base port and the others the following ports. Text bodies and header values, such as
+     * redirect locations, are rewritten to refer to the local origins, so the replayed pages only talk
+     * to the replay server.
+     *
+     * @param baseOrigin the origin of the base URL the tests open.
+     * @param basePort   the local port of the base origin.
+     */
+    public synchronized void save(String baseOrigin, int basePort) {
+        List<Exchange> all = new ArrayList<>();
+        exchanges.values().forEach(all::addAll);
+        ports.clear();
+        ports.put(baseOrigin, basePort);
+        int nextPort = basePort + 1;
+        for (Exchange exchange : all) {
+            if (!ports.containsKey(exchange.origin())) {
+                ports.put(exchange.origin(), nextPort++);
+            }
+        }
+
+        List<String> index = new ArrayList<>();
+        for (Map.Entry<String, List<Exchange>> entry : new TreeMap<>(exchanges).entrySet()) {
+            for (Exchange exchange : entry.getValue()) {
+                index.add(String.join("\t", exchange.origin(), exchange.method(), exchange.target(),
+                        exchange.requestHash(), String.valueOf(exchange.status()), exchange.contentType(),
+                        exchange.bodyFile(), JSON.toJson(localHeaders(exchange.headers()))));
+            }
+        }
+        List<String> origins = new ArrayList<>();
+        ports.forEach((origin, port) -> origins.add(origin + "\t" + port));
+        try {
+            rewriteOrigins(all);
+            Files.write(directory.resolve(ORIGINS_FILE), origins, StandardCharsets.UTF_8);
+            Files.write(directory.resolve(INDEX_FILE), index, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not save the recording in " + directory, e);
+        }
+        System.out.println("Recorded " + index.size() + " exchanges from " + ports.size() + " origins in "
+                + directory.toAbsolutePath());
+    }
+
+    /**
+     * Finds the recorded response to a request.
+     *
+     * @param origin      the recorded origin the request is meant for.
+     * @param method      the HTTP method of the request.
+     * @param target      the path and query of the request.
+     * @param requestBody the request body, or null if it has none.
+     * @return the recorded exchange, or null if the request was not recorded.
+     */
+    public Exchange find(String origin, String method, String target, String requestBody) {
+        String key = key(origin, method, target, requestHash(requestBody));
+        List<Exchange> recorded = exchanges.get(key);
+        if (recorded == null) {
+            return null;
+        }
+        int position = cursors.computeIfAbsent(key, k -> new AtomicInteger()).getAndIncrement();
+        return recorded.get(Math.min(position, recorded.size() - 1));
+    }
+
+    /**
+     * Retrieves the file holding the response body of an exchange.
+     *
+     * @param exchange the recorded exchange.
+     * @return the body file, or null if the response had no body.
+     */
+    public Path bodyOf(Exchange exchange) {
+        return NO_VALUE.equals(exchange.bodyFile()) ? null : directory.resolve(BODIES_DIRECTORY).resolve(exchange.bodyFile());
+    }
+
+    /**
+     * Retrieves the local port that replays each recorded origin.
+     *
+     * @return the ports by origin.
+     */
+    public Map<String, Integer> ports() {
+        return Collections.unmodifiableMap(ports);
+    }
+
+    /**
+     * Extracts the origin of a URI, such as {@code https://api.practicesoftwaretesting.com}.
+     *
+     * @param uri the URI.
+     * @return the scheme, host and explicit port of the URI.
+     */
+    public static String origin(URI uri) {
+        return uri.getScheme() + "://" + uri.getRawAuthority();
+    }
+
+    /**
+     * Extracts the path and query of a URI, without the fragment.
+     *
+     * @param uri the URI.
+     * @return the path and query of the URI.
+     */
+    public static String target(URI uri) {
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        return uri.getRawQuery() == null ? path : path + "?" + uri.getRawQuery();
+    }
+
+    private String store(byte[] body) {
+        String name = sha1(body);
+        try {
+            Files.write(directory.resolve(BODIES_DIRECTORY).resolve(name), body, StandardOpenOption.CREATE_NEW);
+        } catch (FileAlreadyExistsException e) {
+            // The same content was already recorded.
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store a response body in " + directory, e);
+        }
+        return name;
+    }
+
+    /**
+     * Replaces the recorded origins with their local origins in every text body.
+     *
+     * @param all all recorded exchanges.
+     */
+    private void rewriteOrigins(List<Exchange> all) throws IOException {
+        List<String> origins = new ArrayList<>(ports.keySet());
+        origins.sort(Comparator.comparingInt(String::length).reversed());
+        Set<String> rewritten = new HashSet<>();
+        for (Exchange exchange : all) {
+            Path body = bodyOf(exchange);
+            if (body == null || !isText(exchange.contentType()) || !rewritten.add(exchange.bodyFile())) {
+                continue;
+            }
+            String original = Files.readString(body, StandardCharsets.UTF_8);
+            String text = original;
+            for (String origin : origins) {
+                String local = localOrigin(ports.get(origin));
+                text = text.replace(origin, local).replace(origin.replace("/", "\\/"), local.replace("/", "\\/"));
+            }
+            if (!text.equals(original)) {
+                Files.writeString(body, text, StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    /**
+     * Replaces the recorded origins with their local origins in header values.
+     */
+    private Map<String, String> localHeaders(Map<String, String> headers) {
+        List<String> origins = new ArrayList<>(ports.keySet());
+        origins.sort(Comparator.comparingInt(String::length).reversed());
+        Map<String, String> local = new TreeMap<>();
+        headers.forEach((name, value) -> {
+            String text = value;
+            for (String origin : origins) {
+                text = text.replace(origin, localOrigin(ports.get(origin)));
+            }
+            local.put(name, text);
+        });
+        return local;
+    }
+
+    /**
+     * Keeps the response headers worth replaying, by name in their recorded case.
+     *
+     * @param headers the response headers, with string values or lists of values.
+     * @return the headers to record, repeated values separated by newlines.
+     */
+    private static Map<String, String> headers(Map<?, ?> headers) {
+        Map<String, String> kept = new TreeMap<>();
+        if (headers == null) {
+            return kept;
+        }
+        headers.forEach((name, value) -> {
+            String lowerCase = String.valueOf(name).toLowerCase(Locale.ROOT);
+            if (value != null && !lowerCase.startsWith(":") && !lowerCase.startsWith("access-control-")
+                    && !SKIPPED_HEADERS.contains(lowerCase)) {
+                kept.put(String.valueOf(name), value instanceof List<?> values
+                        ? values.stream().map(String::valueOf).collect(Collectors.joining("\n"))
+                        : String.valueOf(value));
+            }
+        });
+        return kept;
+    }
+
+    static String localOrigin(int port) {
+        return "http://127.0.0.1:" + port;
+    }
+
+    private static boolean isText(String contentType) {
+        return contentType.startsWith("text/") || contentType.contains("javascript") || contentType.contains("json")
+                || contentType.contains("xml");
+    }
+
+    private static String key(String origin, String method, String target, String requestHash) {
+        return origin + ' ' + method + ' ' + target + ' ' + requestHash;
+    }
+
+    /**
+     * Hashes a request body. JSON bodies are hashed with their keys sorted,
+     * so the same payload matches regardless of the order the client serialized it in.
+     *
+     * @param body the request body, or null.
+     * @return the hash of the body, or "-" if there is none.
+     */
+    private static String requestHash(String body) {
+        if (body == null || body.isEmpty()) {
+            return NO_VALUE;
+        }
+        String canonical = body;
+        String trimmed = body.trim();
+        if (trimmed.startsWith("{") || trimmed.startsWith("[")) {
+            try {
+                canonical = JSON.toJson(sorted(JSON.toType(trimmed, Json.OBJECT_TYPE)));
+            } catch (JsonException e) {
+                // Not JSON after all, hash it as it is.
+            }
+        }
+        return sha1(canonical.getBytes(StandardCharsets.UTF_8)).substring(0, 16);
+    }
+
+    private static Object sorted(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            map.forEach((key, entry) -> sorted.put(String.valueOf(key), sorted(entry)));
+            return sorted;
+        }
+        if (value instanceof List<?> list) {
+            return list.stream().map(Recording::sorted).toList();
+        }
+        return value;
+    }
+
+    private static String sha1(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+}
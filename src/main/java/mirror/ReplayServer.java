@@ -0,0 +1,147 @@
+package mirror;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ReplayServer answers requests from a {@link Recording} on the loopback interface, with one
+ * embedded HTTP server per recorded origin. Responses are streamed from the recorded body files with
+ * their recorded headers, so redirects, cookies and caching behave as recorded, and cross-origin
+ * requests between the local origins are always allowed, as they were between the recorded ones.
+ * Cookies are adapted to the plain HTTP loopback origins: their domain and {@code Secure} flag are dropped.
+ */
+final class ReplayServer {
+
+    /**
+     * How many unrecorded requests are listed in the report.
+     */
+    private static final int REPORTED_MISSES = 20;
+
+    private final Recording recording;
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "mirror-replay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LongAdder served = new LongAdder();
+    private final LongAdder missed = new LongAdder();
+    private final Set<String> misses = ConcurrentHashMap.newKeySet();
+
+    private ReplayServer(Recording recording) {
+        this.recording = recording;
+    }
+
+    /**
+     * Starts serving the given recording, on the port assigned to each of its origins.
+     *
+     * @param recording the recording to serve.
+     * @return the started server.
+     */
+    static ReplayServer start(Recording recording) {
+        ReplayServer replay = new ReplayServer(recording);
+        try {
+            for (Map.Entry<String, Integer> origin : recording.ports().entrySet()) {
+                HttpServer server = HttpServer.create(
+                        new InetSocketAddress(InetAddress.getLoopbackAddress(), origin.getValue()), 0);
+                server.createContext("/", exchange -> replay.serve(origin.getKey(), exchange));
+                server.setExecutor(replay.executor);
+                server.start();
+                replay.servers.add(server);
+            }
+        } catch (IOException e) {
+            replay.stop();
+            throw new UncheckedIOException("Could not start the replay server", e);
+        }
+        return replay;
+    }
+
+    /**
+     * Stops all servers and prints how many requests were served and which ones were not recorded.
+     */
+    void stop() {
+        servers.forEach(server -> server.stop(0));
+        executor.shutdownNow();
+        System.out.println("Replay served " + served.sum() + " requests, " + missed.sum() + " were not recorded"
+                + (misses.isEmpty() ? "" : ": " + misses));
+    }
+
+    private void serve(String origin, HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Headers headers = exchange.getResponseHeaders();
+            allowCrossOrigin(exchange.getRequestHeaders(), headers);
+            String method = exchange.getRequestMethod();
+            if ("OPTIONS".equals(method)) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            String target = Recording.target(exchange.getRequestURI());
+            String requestBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            Recording.Exchange recorded = recording.find(origin, method, target, requestBody);
+            if (recorded == null) {
+                missed.increment();
+                if (misses.size() < REPORTED_MISSES) {
+                    misses.add(method + " " + origin + target);
+                }
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            served.increment();
+            recorded.headers().forEach((name, values) -> {
+                for (String value : values.split("\n")) {
+                    headers.add(name, "set-cookie".equalsIgnoreCase(name) ? localCookie(value) : value);
+                }
+            });
+            if (!"-".equals(recorded.contentType())) {
+                headers.set("Content-Type", recorded.contentType());
+            }
+            Path body = recorded.status() == 204 || recorded.status() == 304 ? null : recording.bodyOf(recorded);
+            if (body == null) {
+                exchange.sendResponseHeaders(recorded.status(), -1);
+                return;
+            }
+            exchange.sendResponseHeaders(recorded.status(), Files.size(body));
+            Files.copy(body, exchange.getResponseBody());
+        }
+    }
+
+    /**
+     * Adapts a recorded cookie to the loopback origins: drops its domain, which names the recorded host,
+     * and its {@code Secure} flag, which plain HTTP cannot satisfy, and relaxes {@code SameSite=None},
+     * which browsers only accept on secure cookies. The local origins differ only by port, so they are
+     * the same site and {@code Lax} still sends the cookie between them.
+     */
+    private static String localCookie(String cookie) {
+        return cookie.replaceAll("(?i);\\s*domain=[^;]*", "")
+                .replaceAll("(?i);\\s*secure(?=\\s*(;|$))", "")
+                .replaceAll("(?i)samesite=none", "SameSite=Lax");
+    }
+
+    private static void allowCrossOrigin(Headers request, Headers response) {
+        String origin = request.getFirst("Origin");
+        response.set("Access-Control-Allow-Origin", origin == null ? "*" : origin);
+        response.set("Access-Control-Allow-Credentials", "true");
+        response.set("Access-Control-Allow-Methods", "GET, POST, PUT, PATCH, DELETE, OPTIONS");
+        String requestedHeaders = request.getFirst("Access-Control-Request-Headers");
+        response.set("Access-Control-Allow-Headers", requestedHeaders == null ? "*" : requestedHeaders);
+        response.set("Vary", "Origin");
+    }
+
+}
@@ -0,0 +1,117 @@
+package mirror;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.json.Json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TrafficRecorder records every HTTP exchange of a browser session through DevTools network events:
+ * the request is remembered when it is sent, the response when its headers arrive, and the body is
+ * fetched once loading finished. Redirects are reported with the request that follows them, so every
+ * redirect hop is recorded then, without a body. The browser cache is disabled while recording, so every response
+ * is recorded in full instead of as a cache revalidation.
+ */
+final class TrafficRecorder {
+
+    private TrafficRecorder() {
+    }
+
+    /**
+     * Starts recording the HTTP exchanges of the given browser session.
+     *
+     * @param driver    the driver of the session, which must support DevTools.
+     * @param recording the recording to add the exchanges to.
+     */
+    static void attach(WebDriver driver, Recording recording) {
+        DevTools devTools = ((HasDevTools) driver).getDevTools();
+        devTools.createSessionIfThereIsNotOne();
+        Map<Object, Map<?, ?>> requests = new ConcurrentHashMap<>();
+        Map<Object, Map<?, ?>> responses = new ConcurrentHashMap<>();
+
+        devTools.send(new Command<>("Network.enable", Map.of()));
+        devTools.send(new Command<>("Network.setCacheDisabled", Map.of("cacheDisabled", true)));
+        devTools.addListener(event("Network.requestWillBeSent"), sent -> {
+            Map<?, ?> redirect = (Map<?, ?>) sent.get("redirectResponse");
+            Map<?, ?> redirected = redirect == null ? null : requests.get(sent.get("requestId"));
+            if (redirected != null && String.valueOf(redirected.get("url")).startsWith("http")) {
+                recording.add(
+                        String.valueOf(redirected.get("method")),
+                        String.valueOf(redirected.get("url")),
+                        (String) redirected.get("postData"),
+                        ((Number) redirect.get("status")).intValue(),
+                        contentType(redirect),
+                        (Map<?, ?>) redirect.get("headers"),
+                        new byte[0]);
+            }
+            requests.put(sent.get("requestId"), (Map<?, ?>) sent.get("request"));
+        });
+        devTools.addListener(event("Network.responseReceived"), received ->
+                responses.put(received.get("requestId"), (Map<?, ?>) received.get("response")));
+        devTools.addListener(event("Network.loadingFailed"), failed -> {
+            requests.remove(failed.get("requestId"));
+            responses.remove(failed.get("requestId"));
+        });
+        devTools.addListener(event("Network.loadingFinished"), finished -> {
+            Object requestId = finished.get("requestId");
+            Map<?, ?> request = requests.remove(requestId);
+            Map<?, ?> response = responses.remove(requestId);
+            if (request == null || response == null || !String.valueOf(request.get("url")).startsWith("http")) {
+                return;
+            }
+            recording.add(
+                    String.valueOf(request.get("method")),
+                    String.valueOf(request.get("url")),
+                    (String) request.get("postData"),
+                    ((Number) response.get("status")).intValue(),
+                    contentType(response),
+                    (Map<?, ?>) response.get("headers"),
+                    body(devTools, requestId));
+        });
+    }
+
+    /**
+     * Fetches the body of a finished response.
+     *
+     * @return the body, or an empty array if the browser no longer has it.
+     */
+    private static byte[] body(DevTools devTools, Object requestId) {
+        Map<String, Object> result;
+        try {
+            result = devTools.send(new Command<>("Network.getResponseBody", Map.of("requestId", requestId),
+                    input -> input.read(Json.MAP_TYPE)));
+        } catch (WebDriverException e) {
+            return new byte[0];
+        }
+        String body = String.valueOf(result.get("body"));
+        return Boolean.TRUE.equals(result.get("base64Encoded"))
+                ? Base64.getDecoder().decode(body)
+                : body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String contentType(Map<?, ?> response) {
+        Map<?, ?> headers = (Map<?, ?>) response.get("headers");
+        if (headers != null) {
+            for (Map.Entry<?, ?> header : headers.entrySet()) {
+                if ("content-type".equals(String.valueOf(header.getKey()).toLowerCase(Locale.ROOT))) {
+                    return String.valueOf(header.getValue());
+                }
+            }
+        }
+        return (String) response.get("mimeType");
+    }
+
+    private static Event<Map<String, Object>> event(String name) {
+        return new Event<>(name, input -> input.read(Json.MAP_TYPE));
+    }
+
+}
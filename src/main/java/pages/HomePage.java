@@ -47,6 +47,7 @@ public class HomePage extends BasePage {
     protected void clickCombinationPliers() {
         waitVisibility(combinationPliersBy);
         clickElement(combinationPliersBy);
+        capturePerformance("clickCombinationPliers");
     }
 
     /**
@@ -71,6 +72,7 @@ public class HomePage extends BasePage {
     protected void clickProfileFavorites() {
         waitVisibility(profileFavoritesBy);
         clickElement(profileFavoritesBy);
+        capturePerformance("clickProfileFavorites");
     }
 
     /**
@@ -79,11 +81,8 @@ public class HomePage extends BasePage {
      * @return the number of product cards.
      */
     protected int getNumberOfItems() {
-        try {
-            Thread.sleep(1000); // Pause for 1 second
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        waitVisibility(productCardBy);
+        waitForAppStable();
         return getNumberOfElements(productCardBy);
     }
 
@@ -100,17 +99,15 @@ public class HomePage extends BasePage {
     protected void clickPowerTools() {
         waitVisibility(powerToolsBy);
         clickElement(powerToolsBy);
+        capturePerformance("clickPowerTools");
     }
 
     /**
      * Checks the 'Grinder' checkbox in the filter options.
      */
     protected void checkGrinder() {
-        try {
-            Thread.sleep(1000); // Pause for 1 second
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        waitForAppStable();
+        waitToBeClickable(grinderCheckbox);
         clickElement(grinderCheckbox);
     }
 
@@ -118,11 +115,8 @@ public class HomePage extends BasePage {
      * Checks the 'Sander' checkbox in the filter options.
      */
     protected void checkSander() {
-        try {
-            Thread.sleep(1000); // Pause for 1 second
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        waitForAppStable();
+        waitToBeClickable(sanderCheckbox);
         clickElement(sanderCheckbox);
     }
 
@@ -130,11 +124,8 @@ public class HomePage extends BasePage {
      * Checks the 'Saw' checkbox in the filter options.
      */
     protected void checkSaw() {
-        try {
-            Thread.sleep(1000); // Pause for 1 second
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        waitForAppStable();
+        waitToBeClickable(sawCheckbox);
         clickElement(sawCheckbox);
     }
 
@@ -1,5 +1,7 @@
 package pages;
 
+import api.AuthMode;
+import api.Authentication;
 import basePage.BasePage;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
@@ -11,6 +13,16 @@ import org.openqa.selenium.WebDriver;
  */
 public class LoginPage extends BasePage {
 
+    /**
+     * The email of the customer account used by the tests that need a logged-in user.
+     */
+    public static final String CUSTOMER_EMAIL = "customer@practicesoftwaretesting.com";
+
+    /**
+     * The password of the customer account used by the tests that need a logged-in user.
+     */
+    public static final String CUSTOMER_PASSWORD = "welcome01";
+
     /**
      * Constructor to initialize the LoginPage with a WebDriver instance.
      *
@@ -21,9 +33,13 @@ public class LoginPage extends BasePage {
     }
 
     /**
-     * An instance of the HomePage to allow navigation to the home page and interaction with its elements.
+     * Retrieves the HomePage of the session, to navigate to the home page and interact with its elements.
+     *
+     * @return the HomePage.
      */
-    HomePage homePage = new HomePage(driver);
+    protected HomePage homePage() {
+        return page(HomePage.class);
+    }
 
     // Locators for elements on the Login Page
     protected By emailBarBy = By.xpath("//input[@id='email']");
@@ -37,7 +53,6 @@ public class LoginPage extends BasePage {
      */
     protected void typeEmail(String email) {
         waitVisibility(emailBarBy);
-        clearText(emailBarBy);
         typeIn(emailBarBy, email);
     }
 
@@ -48,7 +63,6 @@ public class LoginPage extends BasePage {
      */
     protected void typePassword(String password) {
         waitVisibility(passwordBarBy);
-        clearText(passwordBarBy);
         typeIn(passwordBarBy, password);
     }
 
@@ -57,6 +71,7 @@ public class LoginPage extends BasePage {
      */
     protected void clickLoginButton() {
         clickElement(loginButtonBy);
+        capturePerformance("clickLoginButton");
     }
 
     /**
@@ -67,7 +82,7 @@ public class LoginPage extends BasePage {
      * @param password the password to use for login.
      */
     public void performNegativeLogin(String email, String password) {
-        homePage.clickSignInButton();
+        homePage().clickSignInButton();
         typeEmail(email);
         typePassword(password);
         clickLoginButton();
@@ -79,19 +94,35 @@ public class LoginPage extends BasePage {
      * <p>
      * Steps:
      * <ol>
-     *     <li>Clicks the 'Sign In' button on the Home Page.</li>
-     *     <li>Enters a valid email and password.</li>
-     *     <li>Clicks the login button.</li>
+     *     <li>Skips the login if the browser already holds an access token.</li>
+     *     <li>In {@link AuthMode#API} mode, stores a token obtained from the API and reloads the page.</li>
+     *     <li>In {@link AuthMode#UI} mode, clicks the 'Sign In' button, enters a valid email and password
+     *     and clicks the login button.</li>
      *     <li>Waits until the 'Jane Doe' profile link is visible, indicating a successful login.</li>
      * </ol>
      * </p>
      */
     public void performLogin() {
-        homePage.clickSignInButton();
-        typeEmail("customer@practicesoftwaretesting.com");
-        typePassword("welcome01");
+        if (!Authentication.isAuthenticated(driver)) {
+            if (AuthMode.current() == AuthMode.API) {
+                Authentication.storeToken(driver, Authentication.token(CUSTOMER_EMAIL, CUSTOMER_PASSWORD));
+                driver.navigate().refresh();
+                invalidateElementCache();
+            } else {
+                performUiLogin();
+            }
+        }
+        waitVisibility(homePage().janeDoeBy);
+    }
+
+    /**
+     * Logs in through the login form using valid credentials.
+     */
+    protected void performUiLogin() {
+        homePage().clickSignInButton();
+        typeEmail(CUSTOMER_EMAIL);
+        typePassword(CUSTOMER_PASSWORD);
         clickLoginButton();
-        waitVisibility(homePage.janeDoeBy);
     }
 
 }
@@ -1,10 +1,14 @@
 package pages;
 
+import api.Authentication;
 import basePage.BasePage;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
 import org.testng.Assert;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * ProductPage class represents the product page in the e-commerce application under test.
  * It provides methods for interacting with product-related elements and performing cart and checkout operations.
@@ -22,9 +26,13 @@ public class ProductPage extends BasePage {
     }
 
     /**
-     * An instance of the HomePage class to interact with elements from the home page.
+     * Retrieves the HomePage of the session, to interact with elements from the home page.
+     *
+     * @return the HomePage.
      */
-    HomePage homePage = new HomePage(driver);
+    protected HomePage homePage() {
+        return page(HomePage.class);
+    }
 
     // Locators for elements on the Product Page
     protected By plusProductButtonBy = By.id("btn-increase-quantity");
@@ -47,6 +55,7 @@ public class ProductPage extends BasePage {
     protected By confirmButtonBy = By.xpath("//button[text()=' Confirm ']");
     protected By paymentSuccessfulNotificationBy = By.xpath("//div[text()='Payment was successful']");
     protected By orderConfirmedBy = By.id("order-confirmation");
+    protected By cartTotalBy = By.cssSelector("[data-test='cart-total']");
 
     /**
      * Increases the quantity of the product by 1.
@@ -69,6 +78,7 @@ public class ProductPage extends BasePage {
      */
     protected void clickHome() {
         clickElement(headerHomeBy);
+        capturePerformance("clickHome");
     }
 
     /**
@@ -93,6 +103,7 @@ public class ProductPage extends BasePage {
     protected void clickCart() {
         waitInvisibility(notificationPopupBy);
         clickElement(cartIconBy);
+        capturePerformance("clickCart");
     }
 
     /**
@@ -107,12 +118,21 @@ public class ProductPage extends BasePage {
         Assert.assertEquals(totalString, "$40.31");
     }
 
+    /**
+     * Asserts that the cart page shows the total of the cart, loaded from the shop, as $40.31.
+     */
+    protected void assertCartTotalDisplayed() {
+        waitForTextToBeLoaded(cartTotalBy, "$40.31");
+        assertStringsEqual(getText(cartTotalBy).trim(), "$40.31");
+    }
+
     /**
      * Clicks the 'Proceed to Checkout' button (first variant) in the checkout process.
      */
     protected void clickProceedToCheckout() {
         waitToBeClickable(proceedToCheckoutButtonBy);
         clickElement(proceedToCheckoutButtonBy);
+        capturePerformance("clickProceedToCheckout");
     }
 
     /**
@@ -121,6 +141,7 @@ public class ProductPage extends BasePage {
     protected void clickProceedToCheckout2() {
         waitToBeClickable(proceedToCheckoutButton2By);
         clickElement(proceedToCheckoutButton2By);
+        capturePerformance("clickProceedToCheckout2");
     }
 
     /**
@@ -129,25 +150,21 @@ public class ProductPage extends BasePage {
     protected void clickProceedToCheckout3() {
         waitToBeClickable(proceedToCheckoutButton3By);
         clickElement(proceedToCheckoutButton3By);
+        capturePerformance("clickProceedToCheckout3");
     }
 
     /**
-     * Types the email address into the email input field during login.
-     *
-     * @param email the email address to enter.
-     */
-    protected void typeInEmail(String email) {
-        waitVisibility(emailBarBy);
-        typeIn(emailBarBy, email);
-    }
-
-    /**
-     * Types the password into the password input field during login.
+     * Fills in the email address and password fields of the login step at once.
      *
+     * @param email    the email address to enter.
      * @param password the password to enter.
      */
-    protected void typeInPassword(String password) {
-        typeIn(passwordBarBy, password);
+    protected void typeInCredentials(String email, String password) {
+        waitVisibility(emailBarBy);
+        Map<By, String> credentials = new LinkedHashMap<>();
+        credentials.put(emailBarBy, email);
+        credentials.put(passwordBarBy, password);
+        fillForm(credentials);
     }
 
     /**
@@ -159,28 +176,19 @@ public class ProductPage extends BasePage {
     }
 
     /**
-     * Types the state in the respective input field during the checkout process.
-     *
-     * @param state the state to enter.
-     */
-    protected void typeInState(String state) {
-        try {
-            Thread.sleep(1000); // Wait for UI to settle
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        waitToBeClickable(stateBarBy);
-        typeIn(stateBarBy, state);
-    }
-
-    /**
-     * Types the postcode in the respective input field during the checkout process.
+     * Fills in the state and postcode fields of the billing address at once during the checkout process.
      *
+     * @param state    the state to enter.
      * @param postcode the postcode to enter.
      */
-    protected void typeInPostcode(String postcode) {
+    protected void typeInAddress(String state, String postcode) {
+        waitForAppStable();
+        waitToBeClickable(stateBarBy);
         waitToBeClickable(postcodeBarBy);
-        typeIn(postcodeBarBy, postcode);
+        Map<By, String> address = new LinkedHashMap<>();
+        address.put(stateBarBy, state);
+        address.put(postcodeBarBy, postcode);
+        fillForm(address);
     }
 
     /**
@@ -205,31 +213,64 @@ public class ProductPage extends BasePage {
     protected void clickConfirm() {
         waitVisibility(confirmButtonBy);
         clickElement(confirmButtonBy);
+        capturePerformance("clickConfirm");
     }
 
     /**
      * Performs a full cart test including adding products to the cart, checking the total price,
-     * logging in, and completing the checkout process.
+     * logging in, and completing the checkout process. The login step of the checkout is skipped
+     * when the browser is already authenticated.
+     * <p>
+     * The flow saves a checkpoint once the cart holds two and three items and once the cart page is
+     * checked, so a retry resumes there. The checkout wizard keeps its steps on one URL and runs as one stage.
+     * </p>
      */
     public void performCartTest() {
-        homePage.clickCombinationPliers();
-        addTwoItems();
-        clickAddToCartButton();
-        waitForTextToBeLoaded(itemsNumberBubbleBy, "2");
-        clickHome();
-        clickPliers();
-        clickAddToCartButton();
+        checkpoint("twoCombinationPliersInCart", () -> {
+            homePage().clickCombinationPliers();
+            addTwoItems();
+            clickAddToCartButton();
+            waitForTextToBeLoaded(itemsNumberBubbleBy, "2");
+        });
+        checkpoint("pliersInCart", () -> {
+            clickHome();
+            clickPliers();
+            clickAddToCartButton();
+            waitForTextToBeLoaded(itemsNumberBubbleBy, "3");
+            assertNumberOfItemsAdded();
+        });
+        checkpoint("cartChecked", () -> {
+            clickCart();
+            assertTotalToPay();
+        });
+        checkpoint("checkoutCompleted", this::completeCheckout);
+    }
+
+    /**
+     * Performs the checkout of a cart that was prepared beforehand (for example with
+     * {@link api.CartFixture}), starting on the cart page. The cart badge and the cart total shown
+     * by the page are checked first, so a cart that was not created as expected fails the test.
+     */
+    public void performCheckoutTest() {
         waitForTextToBeLoaded(itemsNumberBubbleBy, "3");
         assertNumberOfItemsAdded();
-        clickCart();
+        assertCartTotalDisplayed();
         assertTotalToPay();
+        completeCheckout();
+    }
+
+    /**
+     * Completes the checkout from the cart page: logs in if needed, fills in the billing address,
+     * pays cash on delivery and verifies that the order is confirmed.
+     */
+    protected void completeCheckout() {
         clickProceedToCheckout();
-        typeInEmail("customer@practicesoftwaretesting.com");
-        typeInPassword("welcome01");
-        clickLoginButton();
+        if (!Authentication.isAuthenticated(driver)) {
+            typeInCredentials(LoginPage.CUSTOMER_EMAIL, LoginPage.CUSTOMER_PASSWORD);
+            clickLoginButton();
+        }
         clickProceedToCheckout2();
-        typeInState("Test state");
-        typeInPostcode("1111");
+        typeInAddress("Test state", "1111");
         clickProceedToCheckout3();
         clickPaymentMethodDropdown();
         clickCashOnDeliveryOption();
@@ -21,19 +21,31 @@ public class ProfilePage extends BasePage {
     }
 
     /**
-     * An instance of the LoginPage class for interacting with login-related elements.
+     * Retrieves the LoginPage of the session, for interacting with login-related elements.
+     *
+     * @return the LoginPage.
      */
-    LoginPage loginPage = new LoginPage(driver);
+    protected LoginPage loginPage() {
+        return page(LoginPage.class);
+    }
 
     /**
-     * An instance of the ProductPage class for interacting with product-related elements.
+     * Retrieves the ProductPage of the session, for interacting with product-related elements.
+     *
+     * @return the ProductPage.
      */
-    ProductPage productPage = new ProductPage(driver);
+    protected ProductPage productPage() {
+        return page(ProductPage.class);
+    }
 
     /**
-     * An instance of the HomePage class to interact with home page elements.
+     * Retrieves the HomePage of the session, to interact with home page elements.
+     *
+     * @return the HomePage.
      */
-    HomePage homePage = new HomePage(driver);
+    protected HomePage homePage() {
+        return page(HomePage.class);
+    }
 
     // Locator for the name of the product added to the favorites
     protected By combinedPliersTextBy = By.cssSelector(".card-title");
@@ -52,12 +64,12 @@ public class ProfilePage extends BasePage {
      * and verifying that the product appears in the user's profile favorites.
      */
     public void performWishlistTest() {
-        loginPage.performLogin();
-        productPage.clickHome();
-        homePage.clickCombinationPliers();
-        homePage.addCombinationPliersToWishlist();
-        homePage.clickJaneDoe();
-        homePage.clickProfileFavorites();
+        loginPage().performLogin();
+        productPage().clickHome();
+        homePage().clickCombinationPliers();
+        homePage().addCombinationPliersToWishlist();
+        homePage().clickJaneDoe();
+        homePage().clickProfileFavorites();
         assertPliersAddedToFavorites();
     }
 
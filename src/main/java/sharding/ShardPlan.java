@@ -0,0 +1,94 @@
+package sharding;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * ShardPlan splits test units into shards of about the same total duration, with the greedy
+ * longest-processing-time algorithm: the units are taken longest first, and each one goes to
+ * the shard with the smallest total so far. Units without a known duration are assumed to take
+ * as long as the average known unit. Ties are broken by unit id and shard index, so every shard
+ * computes the same plan from the same durations.
+ */
+public final class ShardPlan {
+
+    private final Map<String, Integer> shardByUnit;
+    private final long[] estimatedMillis;
+    private final int[] unitCounts;
+
+    private ShardPlan(Map<String, Integer> shardByUnit, long[] estimatedMillis, int[] unitCounts) {
+        this.shardByUnit = shardByUnit;
+        this.estimatedMillis = estimatedMillis;
+        this.unitCounts = unitCounts;
+    }
+
+    /**
+     * Splits the given units into balanced shards.
+     *
+     * @param units     the ids of the test units.
+     * @param durations the durations of earlier runs in milliseconds, by unit id.
+     * @param total     the number of shards.
+     * @return the plan.
+     */
+    public static ShardPlan balance(Collection<String> units, Map<String, Long> durations, int total) {
+        List<String> sorted = new ArrayList<>(new TreeSet<>(units));
+        long defaultMillis = Math.max(1, Math.round(sorted.stream()
+                .filter(durations::containsKey)
+                .mapToLong(durations::get)
+                .average()
+                .orElse(1)));
+        Map<String, Long> estimates = new HashMap<>();
+        sorted.forEach(unit -> estimates.put(unit, durations.getOrDefault(unit, defaultMillis)));
+        sorted.sort(Comparator.comparing(estimates::get, Comparator.reverseOrder()));
+
+        Map<String, Integer> shardByUnit = new HashMap<>();
+        long[] loads = new long[total];
+        int[] counts = new int[total];
+        for (String unit : sorted) {
+            int lightest = 0;
+            for (int shard = 1; shard < total; shard++) {
+                if (loads[shard] < loads[lightest]) {
+                    lightest = shard;
+                }
+            }
+            shardByUnit.put(unit, lightest);
+            loads[lightest] += estimates.get(unit);
+            counts[lightest]++;
+        }
+        return new ShardPlan(shardByUnit, loads, counts);
+    }
+
+    /**
+     * Tells whether a unit belongs to a shard. Units that were not planned belong to the first shard,
+     * so they are run exactly once.
+     *
+     * @param unit  the id of the test unit.
+     * @param shard the index of the shard, from 0.
+     * @return true if the shard runs the unit.
+     */
+    public boolean runs(String unit, int shard) {
+        return shardByUnit.getOrDefault(unit, 0) == shard;
+    }
+
+    /**
+     * Describes a shard of the plan.
+     *
+     * @param shard the index of the shard, from 0.
+     * @return the number of units and the estimated duration of the shard.
+     */
+    public String describe(int shard) {
+        long totalMillis = 0;
+        for (long millis : estimatedMillis) {
+            totalMillis += millis;
+        }
+        return "shard " + (shard + 1) + "/" + estimatedMillis.length + ": " + unitCounts[shard] + " of "
+                + shardByUnit.size() + " tests, about " + estimatedMillis[shard] / 1000 + " s of "
+                + totalMillis / 1000 + " s";
+    }
+
+}
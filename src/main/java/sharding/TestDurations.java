@@ -0,0 +1,107 @@
+package sharding;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * TestDurations reads and writes the durations of test units. Every run writes the durations of
+ * the units it ran to its own file in {@code .perf-history} (or the {@code shard.durations.dir}
+ * system property), named after its shard. Reading merges all these files, the most recent one
+ * winning, so the files of all shards can simply be collected in one directory.
+ */
+public final class TestDurations {
+
+    private static final Path DIRECTORY = Path.of(System.getProperty("shard.durations.dir", ".perf-history"));
+
+    private static final String PREFIX = "test-durations";
+
+    private TestDurations() {
+    }
+
+    /**
+     * Builds the id of a test unit: a test method, or one DataProvider row of a test method.
+     *
+     * @param className  the name of the test class.
+     * @param methodName the name of the test method.
+     * @param parameters the parameters of the row, or an empty array.
+     * @return the id of the unit.
+     */
+    public static String unitId(String className, String methodName, Object[] parameters) {
+        String id = className + "." + methodName;
+        if (parameters != null && parameters.length > 0) {
+            id += Arrays.deepToString(parameters);
+        }
+        return id.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * Reads the durations of all earlier runs.
+     *
+     * @return the duration of every known unit in milliseconds, by unit id.
+     */
+    public static Map<String, Long> load() {
+        Map<String, Long> durations = new HashMap<>();
+        if (!Files.isDirectory(DIRECTORY)) {
+            return durations;
+        }
+        try (Stream<Path> files = Files.list(DIRECTORY)) {
+            List<Path> sorted = new ArrayList<>(files
+                    .filter(file -> file.getFileName().toString().startsWith(PREFIX))
+                    .filter(file -> file.getFileName().toString().endsWith(".tsv"))
+                    .toList());
+            sorted.sort(Comparator.comparing(TestDurations::lastModified));
+            for (Path file : sorted) {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    int tab = line.lastIndexOf('\t');
+                    if (tab > 0) {
+                        durations.put(line.substring(0, tab), Long.parseLong(line.substring(tab + 1).trim()));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read test durations from " + DIRECTORY, e);
+        }
+        return durations;
+    }
+
+    /**
+     * Writes the durations of the units run by a shard.
+     *
+     * @param shard     the index of the shard, from 0.
+     * @param total     the number of shards.
+     * @param durations the duration of every unit the shard ran in milliseconds, by unit id.
+     * @return the written file.
+     */
+    public static Path save(int shard, int total, Map<String, Long> durations) {
+        Path file = DIRECTORY.resolve(total == 1 ? PREFIX + ".tsv" : PREFIX + "-" + (shard + 1) + "-of-" + total + ".tsv");
+        List<String> lines = new ArrayList<>();
+        new TreeMap<>(durations).forEach((unit, millis) -> lines.add(unit + "\t" + millis));
+        try {
+            Files.createDirectories(DIRECTORY);
+            Files.write(file, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write test durations to " + file, e);
+        }
+        return file;
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -1,8 +1,14 @@
 package utils;
 
+import pages.LoginPage;
+
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.Iterator;
+
 /**
  * DataProvider class provides test data for various test cases.
- * In this case, it specifically provides invalid login credentials
+ * In this case, it specifically provides invalid login credentials, read from a file,
  * for testing the login functionality with invalid inputs.
  * This class is used with TestNG's @DataProvider annotation to supply
  * data to the test methods.
@@ -10,20 +16,29 @@ package utils;
 public class DataProvider {
 
     /**
-     * Provides invalid login credentials as test data for negative login tests.
-     * This data is used to test the system's behavior when invalid login details are entered.
+     * Streams invalid login credentials from a CSV or JSONL file with {@code email} and {@code password}
+     * columns. The file is {@code -Ddata.invalidLogins}, or the bundled {@code data/invalid-logins.csv}.
+     * A large generated file can be cut down with {@code -Ddata.sample} (the share of rows to run, 1 by
+     * default), {@code -Ddata.seed} and {@code -Ddata.limit}. Rows with the valid customer email are skipped,
+     * so generated inputs never log in.
+     * <p>
+     * The rows run in parallel, and TestNG reads every row of a parallel DataProvider before it runs the
+     * first one, so the rows left after filtering, sampling and the limit are all held in memory at once.
+     * The file itself is still parsed row by row. With sharding, the rows are read once more to plan the shards.
+     * </p>
      *
-     * @return 2D Object array containing invalid login credentials:
-     *         the first element is the email, and the second is the password.
+     * @param method the test method, whose parameter types the values are converted to.
+     * @return an iterator over the credentials.
      */
-    @org.testng.annotations.DataProvider(name = "Invalid login credentials")
-    public static Object[][] negativeLoginData() {
-        return new Object[][] {
-                {"asd@asd.com", "asd"},
-                {"", ""},
-                {"qwerty", "asd@asd.com"}
-        };
+    @org.testng.annotations.DataProvider(name = "Invalid login credentials file", parallel = true)
+    public static Iterator<Object[]> negativeLoginFileData(Method method) {
+        String file = System.getProperty("data.invalidLogins");
+        FileRows rows = file == null ? FileRows.openResource("data/invalid-logins.csv") : FileRows.open(Path.of(file));
+        return rows.columns("email", "password")
+                .convertFor(method)
+                .filter(row -> !LoginPage.CUSTOMER_EMAIL.equalsIgnoreCase(row.get("email")))
+                .sample(Double.parseDouble(System.getProperty("data.sample", "1")), Long.getLong("data.seed", 0))
+                .limit(Long.getLong("data.limit", Long.MAX_VALUE));
     }
 
 }
-
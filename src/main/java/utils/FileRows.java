@@ -0,0 +1,398 @@
+package utils;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * FileRows streams the rows of a CSV or JSONL file into a TestNG DataProvider. Rows are read
+ * one at a time as TestNG asks for them, so the file never has to fit in memory. TestNG only asks
+ * row by row for a DataProvider without {@code parallel = true}; a parallel DataProvider reads all
+ * of its rows before running them, so its rows are held in memory once they are filtered and sampled.
+ * The iterator is synchronized, so it may also be consumed from several threads.
+ * <p>
+ * CSV files start with a header row naming the columns; quoted values may contain commas, quotes
+ * and line breaks. JSONL files hold one JSON object per line, whose keys are the column names.
+ * Each row becomes the values of the selected columns, in order, converted to the types of the
+ * test method's parameters. Rows can be filtered by their values and sampled; sampling depends
+ * only on the seed and the row number, so the same rows are picked on every run and every shard.
+ * </p>
+ */
+public final class FileRows implements Iterator<Object[]>, Closeable {
+
+    private static final Json JSON = new Json();
+
+    /**
+     * The formats rows can be read from.
+     */
+    public enum Format {
+
+        /**
+         * Comma-separated values with a header row.
+         */
+        CSV,
+
+        /**
+         * One JSON object per line.
+         */
+        JSONL;
+
+        /**
+         * Determines the format of a file from its extension.
+         *
+         * @param name the name of the file.
+         * @return the format of the file.
+         * @throws IllegalArgumentException if the extension is neither .csv nor .jsonl.
+         */
+        public static Format of(String name) {
+            String lower = name.toLowerCase(Locale.ROOT);
+            if (lower.endsWith(".csv")) {
+                return CSV;
+            }
+            if (lower.endsWith(".jsonl") || lower.endsWith(".ndjson")) {
+                return JSONL;
+            }
+            throw new IllegalArgumentException("Cannot tell the format of " + name + " from its extension");
+        }
+
+    }
+
+    private final String source;
+    private final Format format;
+    private final BufferedReader reader;
+    private List<String> header;
+    private List<String> columns;
+    private Class<?>[] types;
+    private Predicate<Map<String, String>> filter = row -> true;
+    private double sampleRate = 1;
+    private long seed;
+    private long limit = Long.MAX_VALUE;
+
+    private long rowNumber;
+    private long returned;
+    private Object[] next;
+    private boolean finished;
+
+    private FileRows(String source, Format format, BufferedReader reader) {
+        this.source = source;
+        this.format = format;
+        this.reader = reader;
+    }
+
+    /**
+     * Opens a CSV or JSONL file, whose format is determined by its extension.
+     *
+     * @param file the file to read.
+     * @return the rows of the file.
+     */
+    public static FileRows open(Path file) {
+        try {
+            return new FileRows(file.toString(), Format.of(file.getFileName().toString()),
+                    Files.newBufferedReader(file, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open " + file, e);
+        }
+    }
+
+    /**
+     * Opens a CSV or JSONL file from the classpath, whose format is determined by its extension.
+     *
+     * @param name the name of the resource.
+     * @return the rows of the resource.
+     */
+    public static FileRows openResource(String name) {
+        InputStream in = FileRows.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IllegalArgumentException("No resource named " + name + " on the classpath");
+        }
+        return new FileRows(name, Format.of(name), new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Selects the columns passed to the test method, in the order of its parameters.
+     * By default every column is passed, in the order of the file.
+     *
+     * @param names the names of the columns.
+     * @return these rows.
+     */
+    public FileRows columns(String... names) {
+        columns = List.of(names);
+        return this;
+    }
+
+    /**
+     * Converts the values of each row to the parameter types of the test method. Supported types are
+     * strings, primitives and their wrappers, and enums. Without it, every value is passed as a string.
+     *
+     * @param method the test method, as injected into the DataProvider.
+     * @return these rows.
+     */
+    public FileRows convertFor(Method method) {
+        types = method.getParameterTypes();
+        return this;
+    }
+
+    /**
+     * Keeps only the rows accepted by the filter. Filters added later must accept the row as well.
+     *
+     * @param predicate the filter, given the values of a row by column name.
+     * @return these rows.
+     */
+    public FileRows filter(Predicate<Map<String, String>> predicate) {
+        filter = filter.and(predicate);
+        return this;
+    }
+
+    /**
+     * Keeps a reproducible sample of the rows.
+     *
+     * @param rate the share of rows to keep, from 0 to 1.
+     * @param seed the seed choosing which rows are kept.
+     * @return these rows.
+     */
+    public FileRows sample(double rate, long seed) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("The sample rate must be between 0 and 1, was " + rate);
+        }
+        this.sampleRate = rate;
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Stops after the given number of rows were returned.
+     *
+     * @param maxRows the largest number of rows to return.
+     * @return these rows.
+     */
+    public FileRows limit(long maxRows) {
+        this.limit = maxRows;
+        return this;
+    }
+
+    @Override
+    public synchronized boolean hasNext() {
+        while (next == null && !finished) {
+            next = readNext();
+        }
+        return next != null;
+    }
+
+    @Override
+    public synchronized Object[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object[] row = next;
+        next = null;
+        return row;
+    }
+
+    @Override
+    public synchronized void close() {
+        finished = true;
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close " + source, e);
+        }
+    }
+
+    /**
+     * Reads records until one passes the filter and the sample, and converts it to parameters.
+     * Returns null and closes the file at its end.
+     */
+    private Object[] readNext() {
+        try {
+            if (header == null && format == Format.CSV) {
+                List<String> firstRecord = readCsvRecord();
+                header = firstRecord == null ? List.of() : firstRecord;
+            }
+            while (returned < limit) {
+                Map<String, String> row = format == Format.CSV ? readCsvRow() : readJsonRow();
+                if (row == null) {
+                    break;
+                }
+                rowNumber++;
+                if (sampled(rowNumber) && filter.test(row)) {
+                    returned++;
+                    return toParameters(row);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + source, e);
+        }
+        close();
+        return null;
+    }
+
+    private Map<String, String> readCsvRow() throws IOException {
+        List<String> values = readCsvRecord();
+        if (values == null) {
+            return null;
+        }
+        Map<String, String> row = new LinkedHashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            row.put(header.get(i), i < values.size() ? values.get(i) : null);
+        }
+        return row;
+    }
+
+    /**
+     * Reads one CSV record, which may span several lines when a quoted value contains line breaks.
+     * Blank lines are skipped. Returns null at the end of the file.
+     */
+    private List<String> readCsvRecord() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) {
+                    values.add(value.toString());
+                    return values;
+                }
+                line = reader.readLine();
+                if (line == null) {
+                    throw new IOException("Unterminated quoted value at row " + (rowNumber + 1));
+                }
+                value.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i < line.length() && line.charAt(i) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+    }
+
+    private Map<String, String> readJsonRow() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        Map<String, Object> object;
+        try {
+            object = JSON.toType(line, Json.MAP_TYPE);
+        } catch (JsonException e) {
+            throw new IOException("Row " + (rowNumber + 1) + " is not a JSON object", e);
+        }
+        Map<String, String> row = new LinkedHashMap<>();
+        object.forEach((key, value) -> row.put(key, value == null ? null : String.valueOf(value)));
+        if (header == null) {
+            header = new ArrayList<>(row.keySet());
+        }
+        return row;
+    }
+
+    /**
+     * Decides whether a row is in the sample from a hash of the seed and the row number,
+     * so the decision does not depend on which thread asks for the row.
+     */
+    private boolean sampled(long row) {
+        if (sampleRate >= 1) {
+            return true;
+        }
+        long z = seed + row * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53 < sampleRate;
+    }
+
+    private Object[] toParameters(Map<String, String> row) {
+        List<String> names = columns != null ? columns : header;
+        Object[] parameters = new Object[names.size()];
+        for (int i = 0; i < parameters.length; i++) {
+            String name = names.get(i);
+            if (!row.containsKey(name)) {
+                throw new IllegalStateException("Row " + rowNumber + " of " + source + " has no column '" + name
+                        + "', only " + row.keySet());
+            }
+            String value = row.get(name);
+            parameters[i] = types != null && i < types.length ? convert(value, types[i]) : value;
+        }
+        return parameters;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object convert(String value, Class<?> type) {
+        if (type == String.class || type == Object.class) {
+            return value;
+        }
+        if (value == null || value.isEmpty()) {
+            if (type.isPrimitive()) {
+                throw new IllegalStateException("Row " + rowNumber + " of " + source + " has no value for a " + type);
+            }
+            return null;
+        }
+        try {
+            if (type == int.class || type == Integer.class) {
+                return Integer.parseInt(value.trim());
+            }
+            if (type == long.class || type == Long.class) {
+                return Long.parseLong(value.trim());
+            }
+            if (type == double.class || type == Double.class) {
+                return Double.parseDouble(value.trim());
+            }
+            if (type == boolean.class || type == Boolean.class) {
+                return Boolean.parseBoolean(value.trim());
+            }
+            if (type.isEnum()) {
+                return Enum.valueOf((Class<? extends Enum>) type, value.trim().toUpperCase(Locale.ROOT));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Row " + rowNumber + " of " + source + ": cannot convert '" + value
+                    + "' to " + type.getSimpleName(), e);
+        }
+        throw new IllegalStateException("Cannot convert values to " + type.getName() + ", supported are strings, "
+                + "primitives, their wrappers and enums; " + Arrays.toString(types));
+    }
+
+}
@@ -0,0 +1,94 @@
+package impact;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SourceChangesTest checks how {@link SourceChanges} reads a diff and attributes the lines of a
+ * page object to its members. It needs no browser.
+ */
+public class SourceChangesTest {
+
+    /**
+     * A declaration spanning several lines belongs to its member on every line, for fields and methods.
+     */
+    @Test(description = "Attributing multi-line declarations to their member")
+    public void multiLineDeclarationsTest() {
+        List<String> source = List.of(
+                "public class Page {",
+                "    protected By longBy = By.xpath(",
+                "            \"//div[@class='long']\");",
+                "    public void fill(String email,",
+                "                     String password) {",
+                "        type(email);",
+                "    }",
+                "}");
+        Assert.assertEquals(SourceChanges.membersByLine(source),
+                new String[] {null, "longBy", "longBy", "fill", "fill", "fill", "fill", null});
+    }
+
+    /**
+     * Braces and comment markers inside string literals do not change the nesting of the source.
+     */
+    @Test(description = "Ignoring braces inside strings")
+    public void bracesInStringsTest() {
+        List<String> source = List.of(
+                "public class Page {",
+                "    private static final String SCRIPT = \"function () { return '}'; }\";",
+                "    private static final String ESCAPED = \"\\\"{ // not a comment\";",
+                "",
+                "    @Override",
+                "    protected void after() {",
+                "        run(\"}\");",
+                "    }",
+                "}");
+        Assert.assertEquals(SourceChanges.membersByLine(source),
+                new String[] {null, "SCRIPT", "ESCAPED", "", "", "after", "after", "after", null});
+    }
+
+    /**
+     * A hunk that only deletes lines changes the lines on both sides of the deletion,
+     * and a deleted file changes as a whole.
+     */
+    @Test(description = "Reading pure deletions from a diff")
+    public void pureDeletionTest() {
+        String diff = String.join("\n",
+                "diff --git a/src/main/java/pages/Page.java b/src/main/java/pages/Page.java",
+                "--- a/src/main/java/pages/Page.java",
+                "+++ b/src/main/java/pages/Page.java",
+                "@@ -12,2 +11,0 @@ public class Page {",
+                "-    protected By oldBy = By.id(\"old\");",
+                "-",
+                "@@ -20 +19,2 @@ public class Page {",
+                "+    protected By newBy = By.id(\"new\");",
+                "+",
+                "diff --git a/src/main/java/pages/Gone.java b/src/main/java/pages/Gone.java",
+                "--- a/src/main/java/pages/Gone.java",
+                "+++ /dev/null",
+                "@@ -1,3 +0,0 @@",
+                "-public class Gone {",
+                "-}",
+                "-");
+        Map<String, List<Integer>> lines = SourceChanges.changedLines(diff);
+        Assert.assertEquals(lines.get("src/main/java/pages/Page.java"), Arrays.asList(11, 12, 19, 20));
+        Assert.assertTrue(lines.containsKey("src/main/java/pages/Gone.java"));
+        Assert.assertNull(lines.get("src/main/java/pages/Gone.java"));
+    }
+
+    /**
+     * Static constants read outside of the page objects are told apart from locators and instance fields.
+     */
+    @Test(description = "Recognizing shared constants")
+    public void sharedConstantsTest() {
+        Assert.assertTrue(SourceChanges.isSharedConstant(
+                "    public static final String CUSTOMER_EMAIL = \"customer@practicesoftwaretesting.com\";"));
+        Assert.assertFalse(SourceChanges.isSharedConstant("    protected By emailBarBy = By.id(\"email\");"));
+        Assert.assertFalse(SourceChanges.isSharedConstant("    private static final By HEADER_BY = By.id(\"header\");"));
+        Assert.assertFalse(SourceChanges.isSharedConstant("    public void performLogin() {"));
+    }
+
+}
@@ -1,52 +1,166 @@
 package tests;
 
-import io.github.bonigarcia.wdm.WebDriverManager;
+import api.AuthMode;
+import api.Authentication;
+import basePage.BasePage;
+import basePage.Checkpoints;
+import basePage.PageContext;
+import basePage.WaitHistory;
+import driver.DriverManager;
+import driver.ResourceBlocker;
+import driver.SessionMode;
+import driver.SessionPool;
+import driver.UserContexts;
+import metrics.PagePerformance;
+import mirror.Mirror;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.testng.annotations.AfterClass;
-import org.testng.annotations.BeforeClass;
+import org.testng.ITestResult;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.AfterSuite;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeSuite;
+import pages.LoginPage;
+
+import java.lang.reflect.Method;
 
 /**
  * BaseTest is a base class for test classes that initializes and manages
  * the Selenium WebDriver instance. It provides setup and teardown methods
  * to ensure a consistent test environment.
+ * <p>
+ * Every test method (and every DataProvider row) leases its own browser session from
+ * the {@link SessionPool} and binds it to the executing thread through {@link DriverManager},
+ * so the suite can run with TestNG's parallel modes without starting a new browser per test.
+ * With {@code -Dsession.mode=user-contexts}, every test gets a {@link UserContexts user context}
+ * of one shared browser instead.
+ * </p>
  */
 public class BaseTest {
 
     /**
-     * Static WebDriver instance to be used by test classes.
+     * Starts recording or replaying the shop if the {@link Mirror} is enabled, then starts the first
+     * browser sessions in the background before any test in the suite is run.
      */
-    static WebDriver driver;
+    @BeforeSuite(alwaysRun = true)
+    public void setUpSessionPool() {
+        Mirror.start();
+        if (SessionMode.current() == SessionMode.POOL) {
+            SessionPool.getInstance().prewarm();
+        }
+    }
 
     /**
-     * Sets up the test environment before any test methods in the class are run.
+     * Sets up the test environment before each test method is run.
      *
      * <ul>
-     *     <li>Initializes the Chrome WebDriver using WebDriverManager.</li>
-     *     <li>Maximizes the browser window.</li>
-     *     <li>Navigates to the default test URL: "https://practicesoftwaretesting.com".</li>
+     *     <li>Clears the performance budget breaches left on the thread, so only the steps of this test
+     *     are checked by the {@link PerformanceBudgetListener}.</li>
+     *     <li>Leases a browser session from the pool, or opens a user context of the shared browser
+     *     in the {@link SessionMode#USER_CONTEXTS} mode, and binds it to the current thread.</li>
+     *     <li>Navigates to the {@link Mirror#baseUrl() base URL}, "https://practicesoftwaretesting.com" by default, already logged in
+     *     if the test {@link #startsAuthenticated() starts authenticated} and the {@link AuthMode#API} mode is active.</li>
+     *     <li>Captures the performance of the loaded home page, if {@link PagePerformance} is enabled.</li>
+     *     <li>Binds the test's {@link Checkpoints} to the session when retries are enabled, so a retry resumes
+     *     where the failed attempt left off.</li>
      * </ul>
+     *
+     * @param method     the test method about to run.
+     * @param parameters the parameters of the invocation, such as a DataProvider row.
+     */
+    @BeforeMethod(alwaysRun = true)
+    public void setUp(Method method, Object[] parameters) {
+        PagePerformance.drainBreaches();
+        WebDriver driver = SessionMode.current() == SessionMode.USER_CONTEXTS
+                ? UserContexts.getInstance().open()
+                : SessionPool.getInstance().lease();
+        DriverManager.setDriver(driver);
+        String url = Mirror.baseUrl();
+        if (startsAuthenticated() && AuthMode.current() == AuthMode.API) {
+            String token = Authentication.token(LoginPage.CUSTOMER_EMAIL, LoginPage.CUSTOMER_PASSWORD);
+            Authentication.openAuthenticated(driver, url, token);
+        } else {
+            driver.get(url);
+        }
+        PagePerformance.capture(driver, "HomePage", "open");
+        if (RetryListener.isEnabled()) {
+            Checkpoints.begin(driver, RetryListener.testKey(method, parameters));
+        }
+    }
+
+    /**
+     * Tells whether the tests of the class need a logged-in customer from the start.
+     * Test classes that only need a logged-in user, rather than testing the login itself, override this.
+     *
+     * @return true if the browser should start authenticated, false otherwise.
      */
-    @BeforeClass
-    public void setUp() {
-        WebDriverManager.chromedriver().setup();
-        driver = new ChromeDriver();
-        driver.manage().window().maximize();
-        driver.get("https://practicesoftwaretesting.com");
+    protected boolean startsAuthenticated() {
+        return false;
     }
 
     /**
-     * Cleans up the test environment after all test methods in the class have been run.
+     * Retrieves the WebDriver instance bound to the current test thread.
+     *
+     * @return the WebDriver of the current thread.
+     */
+    protected WebDriver getDriver() {
+        return DriverManager.getDriver();
+    }
+
+    /**
+     * Retrieves a page object for the browser session of the current test thread.
+     * Page objects are created on first use and shared through the session's {@link PageContext}.
+     *
+     * @param type the class of the page object.
+     * @param <T>  the type of the page object.
+     * @return the page object.
+     */
+    protected <T extends BasePage> T page(Class<T> type) {
+        return PageContext.of(getDriver()).page(type);
+    }
+
+    /**
+     * Cleans up the test environment after each test method has been run.
      *
      * <ul>
-     *     <li>Quits the WebDriver instance if it is not null.</li>
+     *     <li>Prints the requests blocked by the lean execution profile during the test, if it is active.</li>
+     *     <li>Discards the page objects of the test, so the next test of the session starts with fresh ones.</li>
+     *     <li>Unbinds the test's checkpoints from the session, discarding them if the test succeeded or will not be retried.</li>
+     *     <li>Returns the browser session of the current thread to the pool, or closes its user context.</li>
      * </ul>
+     *
+     * @param result the result of the test method that has been run.
      */
-    @AfterClass
-    public void tearDown() {
+    @AfterMethod(alwaysRun = true)
+    public void tearDown(ITestResult result) {
+        if (result.isSuccess() || !RetryListener.isEnabled()) {
+            Checkpoints.discard(RetryListener.testKey(result.getMethod().getConstructorOrMethod().getMethod(),
+                    result.getParameters()));
+        }
+        WebDriver driver = DriverManager.removeDriver();
         if (driver != null) {
-            driver.quit();
+            ResourceBlocker.of(driver).ifPresent(blocker ->
+                    System.out.println(result.getName() + ": " + blocker.drainReport()));
+            PageContext.release(driver);
+            Checkpoints.end(driver);
+            if (SessionMode.current() == SessionMode.USER_CONTEXTS) {
+                UserContexts.getInstance().release(driver);
+            } else {
+                SessionPool.getInstance().release(driver);
+            }
         }
     }
 
+    /**
+     * Quits all pooled browser sessions and the shared browser of the user contexts and prints their
+     * reports, then saves the recording or stops the replay server if the {@link Mirror} is enabled.
+     * The durations of this run's waits are added to the {@link WaitHistory} for the timeouts of the next runs.
+     */
+    @AfterSuite(alwaysRun = true)
+    public void tearDownSessionPool() {
+        SessionPool.getInstance().shutdown();
+        UserContexts.shutdown();
+        Mirror.stop();
+        WaitHistory.getInstance().save();
+    }
+
 }
@@ -25,7 +25,7 @@ public class CategoryTest extends BaseTest {
      */
     @Test(description = "Checking if number of elements in category is lower than total")
     public void categoryTest() {
-        HomePage homePage = new HomePage(driver);
+        HomePage homePage = page(HomePage.class);
         homePage.performCategoryTest();
     }
 }
@@ -0,0 +1,43 @@
+package tests;
+
+import api.CartFixture;
+import org.testng.annotations.Test;
+import pages.ProductPage;
+
+/**
+ * CheckoutTest class contains the test method for the checkout process on its own.
+ * The cart is created over the API and attached to the browser, so the test starts on the
+ * cart page; adding products through the UI is covered by {@link CartTest}.
+ * This class extends the BaseTest class, inheriting setup and teardown operations.
+ */
+public class CheckoutTest extends BaseTest {
+
+    /**
+     * Test method for checking out a prepared cart.
+     * This test simulates the following steps:
+     * 1. Creates a cart with two Combination Pliers and one Pliers over the API and opens it.
+     * 2. Verifies that the page shows three items in the cart and a total of $40.31.
+     * 3. Proceeds to checkout and completes the payment process.
+     */
+    @Test(description = "Checking out a cart prepared over the API")
+    public void checkoutTest() {
+        CartFixture.cart()
+                .with("Combination Pliers", 2)
+                .with("Pliers", 1)
+                .openIn(getDriver());
+        ProductPage productPage = page(ProductPage.class);
+        productPage.performCheckoutTest();
+    }
+
+    /**
+     * The checkout login form is covered by {@link CartTest}, so here the customer
+     * is logged in before the cart is opened.
+     *
+     * @return true.
+     */
+    @Override
+    protected boolean startsAuthenticated() {
+        return true;
+    }
+
+}
@@ -0,0 +1,67 @@
+package tests;
+
+import artifacts.ArtifactWriter;
+import artifacts.StepScreenshots;
+import driver.DriverManager;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestResult;
+
+import java.time.Duration;
+
+/**
+ * FailureArtifactListener keeps the screenshot and page source of every failed test. Both are
+ * taken from the browser right after the test method, before its session is handed back to the
+ * pool; decoding, compressing and writing them is left to the {@link ArtifactWriter}'s background
+ * threads. The writer is flushed when the suite finishes, for at most
+ * {@code -Dartifacts.flushSeconds} (30 seconds).
+ * <p>
+ * When step screenshots are enabled, the ring of the last steps is cleared before each test
+ * and written along with the failure.
+ * </p>
+ */
+public class FailureArtifactListener implements IInvokedMethodListener, ISuiteListener {
+
+    private static final Duration FLUSH_TIMEOUT = Duration.ofSeconds(Long.getLong("artifacts.flushSeconds", 30));
+
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (method.isTestMethod() && StepScreenshots.isEnabled()) {
+            StepScreenshots.drain();
+        }
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (!method.isTestMethod() || testResult.getStatus() != ITestResult.FAILURE || !DriverManager.hasDriver()) {
+            return;
+        }
+        WebDriver driver = DriverManager.getDriver();
+        long start = System.nanoTime();
+        String screenshot = null;
+        String pageSource = null;
+        try {
+            if (driver instanceof TakesScreenshot) {
+                screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BASE64);
+            }
+            pageSource = driver.getPageSource();
+        } catch (WebDriverException e) {
+            System.err.println(testResult.getName() + ": could not capture failure artifacts: " + e.getMessage());
+        }
+        long captureNanos = System.nanoTime() - start;
+        String testName = testResult.getTestClass().getRealClass().getSimpleName() + "." + testResult.getName();
+        ArtifactWriter.getInstance().writeFailure(testName, screenshot, pageSource, StepScreenshots.drain(), captureNanos);
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        ArtifactWriter.getInstance().flush(FLUSH_TIMEOUT);
+    }
+
+}
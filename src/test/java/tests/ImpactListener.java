@@ -0,0 +1,110 @@
+package tests;
+
+import impact.ImpactMap;
+import impact.ImpactTrace;
+import impact.SourceChanges;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ImpactListener runs only the tests affected by a change, according to the {@link ImpactMap}.
+ * The change is given as a git diff range with {@code -Dimpact.diff=origin/main...HEAD}, or as a
+ * comma-separated list of changed files with {@code -Dimpact.changed=src/main/java/pages/ProductPage.java}.
+ * Tests the map does not know yet always run, and so does the whole suite while there is no map or
+ * when the change may affect every test.
+ * <p>
+ * With {@code -Dimpact.record=true}, every test is traced through {@link ImpactTrace} and the map is
+ * updated with the members the tests used when the suite finishes. The nightly full run records the map.
+ * </p>
+ */
+public class ImpactListener implements IMethodInterceptor, IInvokedMethodListener, ISuiteListener {
+
+    private final Map<String, Set<String>> traced = new ConcurrentHashMap<>();
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        SourceChanges changes = changes();
+        if (changes == null) {
+            return methods;
+        }
+        if (changes.affectsEverything()) {
+            System.out.println("Impact analysis: running " + changes.describe());
+            return methods;
+        }
+        ImpactMap map = ImpactMap.load();
+        Set<String> affected = map.affected(changes);
+        List<IMethodInstance> selected = new ArrayList<>();
+        for (IMethodInstance instance : methods) {
+            String test = testId(instance.getMethod());
+            if (!map.knows(test) || affected.contains(test)) {
+                selected.add(instance);
+            }
+        }
+        System.out.println("Impact analysis: running " + selected.size() + " of " + methods.size()
+                + " tests for changes to " + changes.describe());
+        return selected;
+    }
+
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (method.isTestMethod()) {
+            ImpactTrace.begin();
+        }
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (method.isTestMethod()) {
+            Set<String> members = ImpactTrace.end();
+            if (ImpactTrace.isRecording()) {
+                traced.computeIfAbsent(testId(method.getTestMethod()), key -> ConcurrentHashMap.newKeySet()).addAll(members);
+            }
+        }
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        if (traced.isEmpty()) {
+            return;
+        }
+        ImpactMap map = ImpactMap.load();
+        traced.forEach(map::put);
+        System.out.println("Impact map of " + traced.size() + " tests written to " + map.save().toAbsolutePath());
+    }
+
+    /**
+     * Reads the change to select tests for from the system properties.
+     *
+     * @return the change, or null to run every test.
+     */
+    private static SourceChanges changes() {
+        String diff = System.getProperty("impact.diff");
+        if (diff != null) {
+            return SourceChanges.fromGitDiff(diff);
+        }
+        String changed = System.getProperty("impact.changed");
+        if (changed != null) {
+            return SourceChanges.fromFiles(Arrays.asList(changed.split(",")));
+        }
+        return null;
+    }
+
+    private static String testId(ITestNGMethod method) {
+        return method.getRealClass().getName() + "." + method.getMethodName();
+    }
+
+}
@@ -0,0 +1,41 @@
+package tests;
+
+import metrics.LatencyRecorder;
+import metrics.LocatorProfiler;
+import metrics.PagePerformance;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+
+import java.nio.file.Path;
+
+/**
+ * MetricsListener exports the latency percentiles of every page object action and WebDriver
+ * command when the suite finishes. The reports are written to {@code target/metrics} as
+ * {@code latency.json} and {@code latency.csv} when the suite is run with {@code -Dmetrics=true}.
+ * With {@code -Dperf=true}, the page performance of every captured step is written next to them
+ * as {@code page-performance.csv}. With {@code -Dlocators.profile=true}, the most expensive locators
+ * are printed with their suggested alternatives and all of them are written to {@code locator-profile.csv}.
+ */
+public class MetricsListener implements ISuiteListener {
+
+    @Override
+    public void onFinish(ISuite suite) {
+        if (LatencyRecorder.isEnabled()) {
+            Path directory = Path.of(System.getProperty("metrics.dir", "target/metrics"));
+            LatencyRecorder.export(directory);
+            System.out.println("Latency reports written to " + directory.toAbsolutePath());
+        }
+        if (PagePerformance.isEnabled()) {
+            Path directory = Path.of(System.getProperty("metrics.dir", "target/metrics"));
+            PagePerformance.export(directory);
+            System.out.println("Page performance report written to " + directory.toAbsolutePath());
+        }
+        if (LocatorProfiler.isEnabled()) {
+            Path directory = Path.of(System.getProperty("metrics.dir", "target/metrics"));
+            System.out.println(LocatorProfiler.report());
+            LocatorProfiler.export(directory);
+            System.out.println("Locator profile written to " + directory.toAbsolutePath());
+        }
+    }
+
+}
@@ -21,17 +21,17 @@ public class NegativeLoginTest extends BaseTest {
      * 1. Attempts to log in with invalid credentials.
      * 2. Verifies that the login button is still displayed, indicating a failed login attempt.
      *
-     * The method uses the "Invalid login credentials" data provider to supply the test data
-     * (invalid email and password combinations).
+     * The method uses the "Invalid login credentials file" data provider, which streams the
+     * invalid email and password combinations from a CSV or JSONL file.
      *
      * @param email The email address to use for login.
      * @param password The password to use for login.
      */
     @Test(description = "testing the login functionality of the app",
             dataProviderClass = DataProvider.class,
-            dataProvider = "Invalid login credentials")
+            dataProvider = "Invalid login credentials file")
     public void negativeLoginTest(String email, String password) {
-        LoginPage loginPage = new LoginPage(driver);
+        LoginPage loginPage = page(LoginPage.class);
         loginPage.performNegativeLogin(email, password);
     }
 
@@ -0,0 +1,33 @@
+package tests;
+
+import metrics.BudgetMode;
+import metrics.PagePerformance;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ITestResult;
+
+import java.util.List;
+
+/**
+ * PerformanceBudgetListener fails tests whose steps exceeded their page performance budgets,
+ * in the {@link BudgetMode#SOFT_FAIL} mode. The test runs to its end first, so one slow step
+ * does not hide the functional result or the budgets of the later steps. The breaches of a test
+ * are cleared by {@link BaseTest#setUp}, so the steps of its set-up, such as opening the home page,
+ * count toward the test.
+ */
+public class PerformanceBudgetListener implements IInvokedMethodListener {
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (!method.isTestMethod() || !PagePerformance.isEnabled()) {
+            return;
+        }
+        List<String> breaches = PagePerformance.drainBreaches();
+        if (!breaches.isEmpty() && BudgetMode.current() == BudgetMode.SOFT_FAIL
+                && testResult.getStatus() == ITestResult.SUCCESS) {
+            testResult.setStatus(ITestResult.FAILURE);
+            testResult.setThrowable(new AssertionError("Performance budgets exceeded:\n  " + String.join("\n  ", breaches)));
+        }
+    }
+
+}
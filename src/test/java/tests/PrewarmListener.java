@@ -0,0 +1,38 @@
+package tests;
+
+import driver.DriverFactory;
+import driver.SessionMode;
+import driver.SessionPool;
+import driver.UserContexts;
+import mirror.Mirror;
+import org.testng.IExecutionListener;
+
+/**
+ * PrewarmListener starts the first browser sessions as soon as TestNG starts, while it is still
+ * discovering and instantiating the test classes, so the first test finds a warm session.
+ * The Chrome driver binary is resolved first, from its on-disk cache when possible, and the
+ * {@link Mirror} is started before any session, so prewarmed sessions are recorded too.
+ * {@link BaseTest} still prewarms at suite start; whichever runs first does the work.
+ */
+public class PrewarmListener implements IExecutionListener {
+
+    @Override
+    public void onExecutionStart() {
+        Thread thread = new Thread(() -> {
+            try {
+                DriverFactory.resolveDriverBinary();
+                Mirror.start();
+                if (SessionMode.current() == SessionMode.USER_CONTEXTS) {
+                    UserContexts.getInstance();
+                } else {
+                    SessionPool.getInstance().prewarm();
+                }
+            } catch (RuntimeException e) {
+                System.out.println("Could not prewarm browser sessions: " + e.getMessage());
+            }
+        }, "session-prewarm");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+}
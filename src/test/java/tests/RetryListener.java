@@ -0,0 +1,73 @@
+package tests;
+
+import basePage.Checkpoints;
+import org.testng.IAnnotationTransformer;
+import org.testng.IRetryAnalyzer;
+import org.testng.ITestResult;
+import org.testng.annotations.ITestAnnotation;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RetryListener retries failed tests up to {@code test.retries} times, each DataProvider row on its own.
+ * Retries are off unless the property is set, so failures and flaky tests are not hidden by default.
+ * A retried test resumes its flow from the last {@link Checkpoints checkpoint} the failed attempt saved.
+ * The checkpoints of a test are discarded once it succeeds or runs out of retries.
+ */
+public class RetryListener implements IAnnotationTransformer {
+
+    private static final int RETRIES = Integer.getInteger("test.retries", 0);
+
+    private static final Map<String, AtomicInteger> ATTEMPTS = new ConcurrentHashMap<>();
+
+    @Override
+    public void transform(ITestAnnotation annotation, Class testClass, Constructor testConstructor, Method testMethod) {
+        if (RETRIES > 0) {
+            annotation.setRetryAnalyzer(Retry.class);
+        }
+    }
+
+    /**
+     * Tells whether failed tests are retried in this run. Checkpoints are only worth saving when they are.
+     *
+     * @return true if {@code test.retries} is above 0.
+     */
+    static boolean isEnabled() {
+        return RETRIES > 0;
+    }
+
+    /**
+     * Builds the key identifying a test across its attempts: its method and parameters.
+     *
+     * @param method     the test method.
+     * @param parameters the parameters of the invocation, such as a DataProvider row.
+     * @return the key of the test.
+     */
+    static String testKey(Method method, Object[] parameters) {
+        return method.getDeclaringClass().getName() + "." + method.getName() + Arrays.deepToString(parameters);
+    }
+
+    /**
+     * Retries a failed test while it has retries left.
+     */
+    public static class Retry implements IRetryAnalyzer {
+
+        @Override
+        public boolean retry(ITestResult result) {
+            String key = testKey(result.getMethod().getConstructorOrMethod().getMethod(), result.getParameters());
+            if (ATTEMPTS.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet() <= RETRIES) {
+                System.out.println("Retrying " + result.getName() + " from its last checkpoint");
+                return true;
+            }
+            Checkpoints.discard(key);
+            return false;
+        }
+
+    }
+
+}
@@ -0,0 +1,203 @@
+package tests;
+
+import org.testng.IDataProviderInterceptor;
+import org.testng.IDataProviderMethod;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import sharding.ShardPlan;
+import sharding.TestDurations;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ShardingListener runs one shard of the suite, balanced by the durations of earlier runs.
+ * The shard is selected with {@code -Dshard.index=1..N} and {@code -Dshard.total=N}.
+ * Every test method is a unit, and so is every row of a DataProvider, so the rows of one test
+ * method can be spread across shards. The units are split with a {@link ShardPlan}; each shard
+ * runs the test methods that have units in it, and only its own rows of their DataProviders.
+ * <p>
+ * Sharded or not, the duration of every unit that ran is written back through {@link TestDurations}
+ * when the suite finishes, so the next split follows the tests as they grow.
+ * </p>
+ */
+public class ShardingListener implements IMethodInterceptor, IDataProviderInterceptor, ITestListener, ISuiteListener {
+
+    private static final int TOTAL = Integer.getInteger("shard.total", 1);
+
+    private static final int INDEX = Integer.getInteger("shard.index", 1) - 1;
+
+    private volatile ShardPlan plan;
+
+    private final Map<String, Long> durations = new ConcurrentHashMap<>();
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        if (TOTAL <= 1) {
+            return methods;
+        }
+        if (INDEX < 0 || INDEX >= TOTAL) {
+            throw new IllegalArgumentException("shard.index must be between 1 and " + TOTAL + ", was " + (INDEX + 1));
+        }
+        Map<IMethodInstance, List<String>> unitsByMethod = new LinkedHashMap<>();
+        List<String> units = new ArrayList<>();
+        for (IMethodInstance instance : methods) {
+            List<String> methodUnits = units(instance.getMethod(), context);
+            unitsByMethod.put(instance, methodUnits);
+            units.addAll(methodUnits);
+        }
+        plan = ShardPlan.balance(units, TestDurations.load(), TOTAL);
+        System.out.println("Running " + plan.describe(INDEX));
+
+        List<IMethodInstance> selected = new ArrayList<>();
+        unitsByMethod.forEach((instance, methodUnits) -> {
+            if (methodUnits.stream().anyMatch(unit -> plan.runs(unit, INDEX))) {
+                selected.add(instance);
+            }
+        });
+        return selected;
+    }
+
+    @Override
+    public Iterator<Object[]> intercept(Iterator<Object[]> original, IDataProviderMethod dataProviderMethod,
+                                        ITestNGMethod method, ITestContext context) {
+        ShardPlan current = plan;
+        if (current == null) {
+            return original;
+        }
+        return new Iterator<>() {
+
+            private Object[] next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && original.hasNext()) {
+                    Object[] row = original.next();
+                    if (current.runs(unitId(method, row), INDEX)) {
+                        next = row;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Object[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Object[] row = next;
+                next = null;
+                return row;
+            }
+
+        };
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        recordDuration(result);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        recordDuration(result);
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        if (!durations.isEmpty()) {
+            System.out.println("Test durations written to "
+                    + TestDurations.save(Math.max(INDEX, 0), Math.max(TOTAL, 1), durations).toAbsolutePath());
+        }
+    }
+
+    private void recordDuration(ITestResult result) {
+        durations.put(unitId(result.getMethod(), result.getParameters()), result.getEndMillis() - result.getStartMillis());
+    }
+
+    private static String unitId(ITestNGMethod method, Object[] parameters) {
+        return TestDurations.unitId(method.getRealClass().getName(), method.getMethodName(), parameters);
+    }
+
+    /**
+     * Lists the units of a test method: the method itself, or one unit per row of its DataProvider.
+     */
+    private static List<String> units(ITestNGMethod method, ITestContext context) {
+        List<String> units = new ArrayList<>();
+        Method javaMethod = method.getConstructorOrMethod().getMethod();
+        Test test = javaMethod == null ? null : javaMethod.getAnnotation(Test.class);
+        if (test == null || test.dataProvider().isEmpty()) {
+            units.add(unitId(method, new Object[0]));
+            return units;
+        }
+        Class<?> providerClass = test.dataProviderClass() == Object.class ? method.getRealClass() : test.dataProviderClass();
+        Iterator<?> rows = rows(findDataProvider(providerClass, test.dataProvider()), javaMethod, method, context);
+        while (rows.hasNext()) {
+            Object row = rows.next();
+            units.add(unitId(method, row instanceof Object[] values ? values : new Object[] {row}));
+        }
+        return units;
+    }
+
+    private static Method findDataProvider(Class<?> providerClass, String name) {
+        for (Class<?> type = providerClass; type != null; type = type.getSuperclass()) {
+            for (Method candidate : type.getDeclaredMethods()) {
+                DataProvider annotation = candidate.getAnnotation(DataProvider.class);
+                if (annotation != null && name.equals(annotation.name().isEmpty() ? candidate.getName() : annotation.name())) {
+                    return candidate;
+                }
+            }
+        }
+        throw new IllegalStateException("No DataProvider named '" + name + "' in " + providerClass.getName());
+    }
+
+    /**
+     * Invokes a DataProvider to enumerate its rows, passing the arguments TestNG would inject.
+     */
+    private static Iterator<?> rows(Method provider, Method testMethod, ITestNGMethod method, ITestContext context) {
+        Object[] arguments = new Object[provider.getParameterCount()];
+        Class<?>[] types = provider.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == Method.class) {
+                arguments[i] = testMethod;
+            } else if (types[i] == ITestContext.class) {
+                arguments[i] = context;
+            } else if (types[i] == ITestNGMethod.class) {
+                arguments[i] = method;
+            }
+        }
+        try {
+            provider.setAccessible(true);
+            Object instance = Modifier.isStatic(provider.getModifiers()) ? null
+                    : provider.getDeclaringClass().isInstance(method.getInstance()) ? method.getInstance()
+                    : provider.getDeclaringClass().getDeclaredConstructor().newInstance();
+            Object result = provider.invoke(instance, arguments);
+            if (result instanceof Object[] array) {
+                return Arrays.asList(array).iterator();
+            }
+            return (Iterator<?>) result;
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("DataProvider " + provider.getName() + " failed", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not invoke DataProvider " + provider.getName(), e);
+        }
+    }
+
+}
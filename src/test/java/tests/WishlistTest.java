@@ -23,8 +23,18 @@ public class WishlistTest extends BaseTest {
      */
     @Test(description = "Checking if the item is added to favorites")
     public void wishlistTest() {
-        ProfilePage profilePage = new ProfilePage(driver);
+        ProfilePage profilePage = page(ProfilePage.class);
         profilePage.performWishlistTest();
     }
 
+    /**
+     * The test only needs a logged-in customer, so the browser starts authenticated.
+     *
+     * @return true.
+     */
+    @Override
+    protected boolean startsAuthenticated() {
+        return true;
+    }
+
 }